@@ -0,0 +1,49 @@
+package com.example.benchmark;
+
+import com.example.entity.Account;
+import com.example.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures AccountService registration and login. Both are dominated by BCrypt at the configured strength, except for
+ * logins answered from the password verification cache; verificationCacheSize=0 measures every login paying the KDF.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountServiceBenchmark {
+
+    @Param({"100000", "0"})
+    public String verificationCacheSize;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("--app.passwords.verification-cache-size=" + verificationCacheSize);
+        accountService = context.getBean(AccountService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Account register() {
+        return accountService.register(new Account("benchmark-user-" + next++, "password")).join();
+    }
+
+    @Benchmark
+    public Account login() {
+        return accountService.login(new Account("testuser1", "password")).join();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.benchmark;
+
+import com.example.SocialMediaApp;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+
+/**
+ * Starts the application context for a benchmark without a web server, so services and repositories are measured
+ * directly against the in-memory database. The per-account rate limit is disabled, since benchmarks post far faster
+ * than any client is allowed to.
+ */
+final class BenchmarkApplication {
+
+    private static final String[] DEFAULT_ARGS = {
+            "--logging.level.root=WARN",
+            "--app.messages.rate-limit.enabled=false"
+    };
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... args) {
+        SpringApplication application = new SpringApplication(SocialMediaApp.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setBannerMode(Banner.Mode.OFF);
+
+        String[] allArgs = Arrays.copyOf(DEFAULT_ARGS, DEFAULT_ARGS.length + args.length);
+        System.arraycopy(args, 0, allArgs, DEFAULT_ARGS.length, args.length);
+        return application.run(allArgs);
+    }
+}
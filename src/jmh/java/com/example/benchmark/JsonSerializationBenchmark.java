@@ -0,0 +1,57 @@
+package com.example.benchmark;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Jackson serialization of Message and Account lists of different sizes, as written in response bodies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int size;
+
+    private ObjectWriter messageListWriter;
+    private ObjectWriter accountListWriter;
+    private List<Message> messages;
+    private List<Account> accounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        messageListWriter = objectMapper.writerFor(new TypeReference<List<Message>>() {});
+        accountListWriter = objectMapper.writerFor(new TypeReference<List<Account>>() {});
+
+        messages = new ArrayList<>(size);
+        accounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            messages.add(new Message(i, i % 100, "benchmark message number " + i, 1669947792L + i));
+            accounts.add(new Account(i, "benchmark-user-" + i, "password"));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeMessages() throws JsonProcessingException {
+        return messageListWriter.writeValueAsBytes(messages);
+    }
+
+    @Benchmark
+    public byte[] serializeAccounts() throws JsonProcessingException {
+        return accountListWriter.writeValueAsBytes(accounts);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.benchmark;
+
+import com.example.entity.Message;
+import com.example.service.MessageService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Slice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures MessageService against the in-memory database, with the message cache enabled and disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageServiceBenchmark {
+
+    private static final int POSTED_BY = 9999;
+    private static final int SEEDED_MESSAGES = 1024;
+    private static final int SEED_BATCH_SIZE = 256;
+
+    @Param({"caffeine", "none"})
+    public String cacheType;
+
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private int[] messageIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("--spring.cache.type=" + cacheType);
+        messageService = context.getBean(MessageService.class);
+
+        // seeded in batches within app.messages.max-page-size
+        messageIds = new int[SEEDED_MESSAGES];
+        for (int from = 0; from < SEEDED_MESSAGES; from += SEED_BATCH_SIZE) {
+            List<Message> messages = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int i = from; i < from + SEED_BATCH_SIZE; i++)
+                messages.add(new Message(POSTED_BY, "seeded message " + i, 1669947792L + i));
+            int[] batchIds = messageService.createMessages(messages).stream()
+                    .mapToInt(result -> result.getMessage().getMessageId())
+                    .toArray();
+            System.arraycopy(batchIds, 0, messageIds, from, SEED_BATCH_SIZE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Message createMessage() {
+        return messageService.createMessage(new Message(POSTED_BY, "benchmark message", 1669947792L));
+    }
+
+    @Benchmark
+    public Message getMessageById() {
+        return messageService.getMessageById(messageIds[next++ & (SEEDED_MESSAGES - 1)]);
+    }
+
+    @Benchmark
+    public Slice<Message> getAllMessagesByAccountId() {
+        return messageService.getAllMessagesByAccountId(POSTED_BY, null, null, 100);
+    }
+}
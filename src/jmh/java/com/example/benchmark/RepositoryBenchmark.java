@@ -0,0 +1,90 @@
+package com.example.benchmark;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.repository.AccountRepository;
+import com.example.repository.MessageRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the repository queries behind the message and account endpoints directly, without the service layer and
+ * its message cache, against 1024 seeded messages of one account.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int POSTED_BY = 9999;
+    private static final int SEEDED_MESSAGES = 1024;
+    private static final Pageable PAGE = PageRequest.of(0, 100);
+
+    private ConfigurableApplicationContext context;
+    private MessageRepository messageRepository;
+    private AccountRepository accountRepository;
+    private int[] messageIds;
+    private Message middle;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        messageRepository = context.getBean(MessageRepository.class);
+        accountRepository = context.getBean(AccountRepository.class);
+
+        List<Message> messages = new ArrayList<>(SEEDED_MESSAGES);
+        for (int i = 0; i < SEEDED_MESSAGES; i++)
+            messages.add(new Message(POSTED_BY, "seeded message " + i, 1669947792L + i));
+        messageIds = messageRepository.saveAll(messages).stream()
+                .mapToInt(Message::getMessageId)
+                .toArray();
+        middle = messages.get(SEEDED_MESSAGES / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Message save() {
+        return messageRepository.save(new Message(POSTED_BY, "benchmark message", 1669947792L));
+    }
+
+    @Benchmark
+    public Optional<Message> findById() {
+        return messageRepository.findById(messageIds[next++ & (SEEDED_MESSAGES - 1)]);
+    }
+
+    @Benchmark
+    public Slice<Message> findFirstPageByPostedBy() {
+        return messageRepository.findByPostedByOrderByTimePostedEpochDescMessageIdDesc(POSTED_BY, PAGE);
+    }
+
+    @Benchmark
+    public Slice<Message> findPageByPostedByBefore() {
+        return messageRepository.findByPostedByBefore(POSTED_BY, middle.getTimePostedEpoch(), middle.getMessageId(), PAGE);
+    }
+
+    @Benchmark
+    public Optional<Message> updateMessageTextById() {
+        return messageRepository.updateMessageTextById(messageIds[next++ & (SEEDED_MESSAGES - 1)], "updated message");
+    }
+
+    @Benchmark
+    public Optional<Account> findAccountByUsername() {
+        return accountRepository.findByUsername("testuser1");
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The operations replayed by the load test. Each is reported under its lower-case name, which is also the name used
+ * in the loadtest.mix weights and in per-endpoint p99 budgets such as loadtest.p99BudgetMillis.register.
+ */
+enum Endpoint {
+    REGISTER(true),
+    LOGIN(true),
+    POST(false),
+    READ(false),
+    PATCH(false),
+    DELETE(false);
+
+    private final boolean hashesPassword;
+
+    Endpoint(boolean hashesPassword) {
+        this.hashesPassword = hashesPassword;
+    }
+
+    String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Whether each request runs BCrypt on the server, which makes its latency depend on the cores of the server.
+     */
+    boolean hashesPassword() {
+        return hashesPassword;
+    }
+
+    /**
+     * Parses a mix such as "register=2,login=8,post=25,read=50,patch=10,delete=5" into relative weights. Endpoints
+     * that are not mentioned get weight 0.
+     *
+     * @param mix a comma-separated list of endpoint=weight pairs
+     * @return the weight of each endpoint
+     */
+    static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2)
+                throw new IllegalArgumentException("Expected endpoint=weight in loadtest.mix, but was: " + entry);
+            weights.put(Endpoint.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
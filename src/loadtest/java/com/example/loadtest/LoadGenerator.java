@@ -0,0 +1,341 @@
+package com.example.loadtest;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a weighted mix of requests against a running application, either at a fixed arrival rate (an open
+ * workload) or over a fixed number of busy connections (a closed workload).
+ *
+ * Request i is due at start + i / rate whether or not earlier requests have completed, and is sent asynchronously so
+ * a slow response never delays later requests. Latency is measured from the time a request was due, not from the
+ * time it was actually sent, so time spent queued behind a stalled server or a lagging generator is counted. This
+ * avoids the coordinated omission of closed-loop generators, which stop issuing requests while the server is slow and
+ * so under-report exactly the latencies that matter.
+ */
+final class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int READABLE_IDS = 1024;
+    private static final String PASSWORD = "password";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI baseUrl;
+    private final Random random;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+    private final List<Account> accounts = new ArrayList<>();
+    // messages that are read and patched, and messages that are deleted, are kept apart so a delete never turns a
+    // later read or patch into an error
+    private final AtomicIntegerArray readableIds = new AtomicIntegerArray(READABLE_IDS);
+    private final AtomicInteger readableCount = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Integer> deletableIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger registrations = new AtomicInteger();
+    private final LongAdder inFlight = new LongAdder();
+    private long maxDispatchLagNanos;
+    private long measuredNanos;
+
+    LoadGenerator(URI baseUrl, long seed) {
+        this.baseUrl = baseUrl;
+        this.random = new Random(seed);
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    /**
+     * Registers the accounts that log in and post during the run, and posts one message from each so reads and
+     * patches have targets from the start. Posting is spread over all accounts to stay within the per-account rate
+     * limit.
+     *
+     * @param accountCount the number of accounts to register
+     */
+    void setUp(int accountCount) throws IOException, InterruptedException {
+        for (int i = 0; i < accountCount; i++) {
+            HttpResponse<String> response = client.send(request(Endpoint.REGISTER), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200)
+                throw new IllegalStateException("Could not register a load test account: " + response.statusCode() + " " + response.body());
+            Account account = objectMapper.readValue(response.body(), Account.class);
+            accounts.add(account);
+
+            response = client.send(request(Endpoint.POST), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200)
+                throw new IllegalStateException("Could not post a load test message: " + response.statusCode() + " " + response.body());
+            addReadableId(objectMapper.readValue(response.body(), Message.class).getMessageId());
+        }
+    }
+
+    /**
+     * Sends requests at the given rate for the warm-up and then the measured duration, and waits for the last
+     * responses. Only requests due after the warm-up are recorded.
+     *
+     * @param rate the number of requests per second
+     * @param warmup how long to send requests before recording
+     * @param duration how long to send recorded requests
+     * @param mix the relative weight of each endpoint
+     */
+    void run(double rate, Duration warmup, Duration duration, Map<Endpoint, Integer> mix) throws InterruptedException {
+        List<Endpoint> weighted = weighted(mix);
+        measuredNanos = duration.toNanos();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due >= end)
+                break;
+
+            long now = System.nanoTime();
+            if (due > now)
+                LockSupport.parkNanos(due - now);
+            else
+                maxDispatchLagNanos = Math.max(maxDispatchLagNanos, now - due);
+
+            Endpoint endpoint = weighted.get(random.nextInt(weighted.size()));
+            send(endpoint, due, due >= measureFrom);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (inFlight.sum() > 0 && System.nanoTime() < deadline)
+            Thread.sleep(10);
+    }
+
+    /**
+     * Keeps the given number of requests outstanding for the warm-up and then the measured duration: each completed
+     * request is immediately followed by another, so the HTTP client holds that many keep-alive connections open and
+     * busy. Latency is measured from the time each request was sent, so unlike run this reports the throughput the
+     * server sustains at that concurrency rather than latency at a given load.
+     *
+     * @param connections the number of requests kept outstanding
+     * @param warmup how long to send requests before recording
+     * @param duration how long to send recorded requests
+     * @param mix the relative weight of each endpoint
+     */
+    void hold(int connections, Duration warmup, Duration duration, Map<Endpoint, Integer> mix) throws InterruptedException {
+        List<Endpoint> weighted = weighted(mix);
+        measuredNanos = duration.toNanos();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        for (int i = 0; i < connections; i++) {
+            inFlight.increment();
+            sendNext(weighted, measureFrom, end);
+        }
+
+        long deadline = end + TimeUnit.MINUTES.toNanos(1);
+        while (inFlight.sum() > 0 && System.nanoTime() < deadline)
+            Thread.sleep(10);
+    }
+
+    Histogram latencies(Endpoint endpoint) {
+        return latencies.get(endpoint);
+    }
+
+    long errors(Endpoint endpoint) {
+        return errors.get(endpoint).sum();
+    }
+
+    /**
+     * Prints a percentile summary per endpoint and writes each endpoint's full percentile distribution, in
+     * milliseconds, to {endpoint}.hgrm in the report directory. The .hgrm files can be plotted with HdrHistogram's
+     * plotter to compare runs.
+     *
+     * @param out the stream to print the summary to
+     * @param reportDirectory the directory for the .hgrm files
+     */
+    void report(PrintStream out, Path reportDirectory) throws IOException {
+        Files.createDirectories(reportDirectory);
+        out.printf("%-9s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = latencies.get(endpoint);
+            if (histogram.getTotalCount() == 0)
+                continue;
+
+            out.printf("%-9s %8d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", endpoint.label(), histogram.getTotalCount(),
+                    errors(endpoint), millis(histogram, 50), millis(histogram, 90), millis(histogram, 99),
+                    millis(histogram, 99.9), histogram.getMaxValue() / 1000.0);
+            try (PrintStream file = new PrintStream(Files.newOutputStream(reportDirectory.resolve(endpoint.label() + ".hgrm")))) {
+                histogram.outputPercentileDistribution(file, 1000.0);
+            }
+        }
+        long recorded = 0;
+        for (Histogram histogram : latencies.values())
+            recorded += histogram.getTotalCount();
+        out.printf("throughput: %.1f requests/s%n", recorded / (measuredNanos / 1e9));
+        out.printf("max dispatch lag: %.2f ms%n", maxDispatchLagNanos / 1e6);
+    }
+
+    /**
+     * Prints the server's live thread count and JVM memory use, read from its metrics endpoint.
+     *
+     * @param out the stream to print the metrics to
+     */
+    void reportServer(PrintStream out) throws IOException, InterruptedException {
+        out.printf("server jvm.threads.live: %.0f%n", serverMetric("jvm.threads.live"));
+        out.printf("server jvm.memory.used heap: %.1f MB%n", serverMetric("jvm.memory.used?tag=area:heap") / (1 << 20));
+        out.printf("server jvm.memory.used nonheap: %.1f MB%n", serverMetric("jvm.memory.used?tag=area:nonheap") / (1 << 20));
+    }
+
+    static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private void send(Endpoint endpoint, long due, boolean recorded) {
+        HttpRequest request = request(endpoint);
+        inFlight.increment();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, failure) -> {
+                    try {
+                        boolean ok = failure == null && response.statusCode() == 200;
+                        if (recorded) {
+                            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due);
+                            latencies.get(endpoint).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+                            if (!ok)
+                                errors.get(endpoint).increment();
+                        }
+                        if (ok && endpoint == Endpoint.POST)
+                            rememberMessage(response.body());
+                    } finally {
+                        inFlight.decrement();
+                    }
+                });
+    }
+
+    private void sendNext(List<Endpoint> weighted, long measureFrom, long end) {
+        long sent = System.nanoTime();
+        if (sent >= end) {
+            inFlight.decrement();
+            return;
+        }
+
+        Endpoint endpoint = weighted.get(random.nextInt(weighted.size()));
+        client.sendAsync(request(endpoint), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, failure) -> {
+                    boolean ok = failure == null && response.statusCode() == 200;
+                    if (sent >= measureFrom) {
+                        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent);
+                        latencies.get(endpoint).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+                        if (!ok)
+                            errors.get(endpoint).increment();
+                    }
+                    if (ok && endpoint == Endpoint.POST)
+                        rememberMessage(response.body());
+                    sendNext(weighted, measureFrom, end);
+                });
+    }
+
+    private double serverMetric(String name) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(baseUrl.resolve("/actuator/metrics/" + name)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return objectMapper.readTree(response.body()).path("measurements").path(0).path("value").asDouble();
+    }
+
+    private static List<Endpoint> weighted(Map<Endpoint, Integer> mix) {
+        List<Endpoint> weighted = new ArrayList<>();
+        mix.forEach((endpoint, weight) -> {
+            for (int i = 0; i < weight; i++)
+                weighted.add(endpoint);
+        });
+        if (weighted.isEmpty())
+            throw new IllegalArgumentException("loadtest.mix must give at least one endpoint a positive weight");
+        return weighted;
+    }
+
+    private HttpRequest request(Endpoint endpoint) {
+        switch (endpoint) {
+            case REGISTER:
+                return post("/register", "{\"username\": \"load-" + runId + "-" + registrations.incrementAndGet() +
+                        "\", \"password\": \"" + PASSWORD + "\"}");
+            case LOGIN:
+                return post("/login", "{\"username\": \"" + randomAccount().getUsername() +
+                        "\", \"password\": \"" + PASSWORD + "\"}");
+            case POST:
+                return post("/messages", "{\"postedBy\": " + randomAccount().getAccountId() +
+                        ", \"messageText\": \"load test message\", \"timePostedEpoch\": " + System.currentTimeMillis() / 1000 + "}");
+            case READ:
+                return HttpRequest.newBuilder(baseUrl.resolve("/messages/" + randomReadableId()))
+                        .timeout(Duration.ofMinutes(1))
+                        .build();
+            case PATCH:
+                return HttpRequest.newBuilder(baseUrl.resolve("/messages/" + randomReadableId()))
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"edited load test message\"}"))
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofMinutes(1))
+                        .build();
+            case DELETE:
+                Integer messageId = deletableIds.poll();
+                // with nothing left to delete, a delete of an unknown id still exercises the endpoint and returns 200
+                return HttpRequest.newBuilder(baseUrl.resolve("/messages/" + (messageId == null ? -1 : messageId)))
+                        .DELETE()
+                        .timeout(Duration.ofMinutes(1))
+                        .build();
+            default:
+                throw new IllegalArgumentException("Unknown endpoint: " + endpoint);
+        }
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofMinutes(1))
+                .build();
+    }
+
+    private Account randomAccount() {
+        return accounts.isEmpty()
+                ? new Account(9999, "testuser1", PASSWORD)
+                : accounts.get(random.nextInt(accounts.size()));
+    }
+
+    private int randomReadableId() {
+        int count = Math.min(readableCount.get(), READABLE_IDS);
+        return count == 0 ? 9999 : readableIds.get(random.nextInt(count));
+    }
+
+    private void rememberMessage(String body) {
+        try {
+            int messageId = objectMapper.readValue(body, Message.class).getMessageId();
+            if ((messageId & 1) == 0)
+                addReadableId(messageId);
+            else
+                deletableIds.add(messageId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void addReadableId(int messageId) {
+        readableIds.set(readableCount.getAndIncrement() % READABLE_IDS, messageId);
+    }
+}
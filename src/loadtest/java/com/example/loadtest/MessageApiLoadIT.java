@@ -0,0 +1,143 @@
+package com.example.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test of the HTTP API, run by the loadtest Maven profile against an application started in
+ * pre-integration-test. The workload and budgets are read from loadtest.* system properties, which the profile sets
+ * from Maven properties of the same name, so they can be overridden with -D on the command line.
+ */
+public class MessageApiLoadIT {
+
+    /**
+     * Replays the configured endpoint mix at a fixed arrival rate.
+     *
+     * Expected Result:
+     *  For every endpoint that received requests, the p99 latency is within its budget
+     *  (loadtest.p99BudgetMillis.{endpoint}; if unset, the BCrypt budget for register and login and
+     *  loadtest.p99BudgetMillis for the others), and at most loadtest.maxErrorPercent of its requests did not return
+     *  200
+     */
+    @Test
+    public void replayMixAtFixedRate() throws IOException, InterruptedException {
+        Assumptions.assumeTrue(Integer.getInteger("loadtest.connections", 0) == 0,
+                "loadtest.connections is set, so only the closed workload runs");
+        LoadGenerator generator = new LoadGenerator(URI.create(System.getProperty("loadtest.baseUrl", "http://localhost:8080")),
+                Long.getLong("loadtest.seed", 42));
+        generator.setUp(Integer.getInteger("loadtest.accounts", 50));
+
+        Map<Endpoint, Integer> mix = Endpoint.parseMix(System.getProperty("loadtest.mix",
+                "register=2,login=8,post=25,read=50,patch=10,delete=5"));
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "50"));
+        generator.run(rate,
+                Duration.ofSeconds(Long.getLong("loadtest.warmupSeconds", 10)),
+                Duration.ofSeconds(Long.getLong("loadtest.durationSeconds", 30)),
+                mix);
+        generator.report(System.out, Path.of(System.getProperty("loadtest.reportDirectory", "target/loadtest")));
+
+        long defaultBudget = Long.getLong("loadtest.p99BudgetMillis", 100);
+        long bcryptBudget = bcryptBudgetMillis(mix, rate, defaultBudget);
+        double maxErrorPercent = Double.parseDouble(System.getProperty("loadtest.maxErrorPercent", "1"));
+        List<String> violations = new ArrayList<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = generator.latencies(endpoint);
+            if (histogram.getTotalCount() == 0)
+                continue;
+
+            long budget = Long.getLong("loadtest.p99BudgetMillis." + endpoint.label(),
+                    endpoint.hashesPassword() ? bcryptBudget : defaultBudget);
+            double p99 = LoadGenerator.millis(histogram, 99);
+            if (p99 > budget)
+                violations.add(String.format("%s p99 was %.2f ms, over its budget of %d ms", endpoint.label(), p99, budget));
+
+            double errorPercent = 100.0 * generator.errors(endpoint) / histogram.getTotalCount();
+            if (errorPercent > maxErrorPercent)
+                violations.add(String.format("%s failed %.2f%% of requests, over the limit of %.2f%%",
+                        endpoint.label(), errorPercent, maxErrorPercent));
+        }
+        Assertions.assertTrue(violations.isEmpty(), String.join("\n", violations));
+    }
+
+    /**
+     * Returns the default p99 budget of the endpoints that run BCrypt, from the cost of one hash on this machine. A hash
+     * at loadtest.bcryptStrength is timed, and the share of loadtest.rate that hashes gives the utilization of each of
+     * the server's loadtest.serverCores cores (every login is counted, although repeated ones are verified from a
+     * cache). The p99 time spent in a queue of that utilization is ln(100) / (1 - utilization) hashes, which is added
+     * to loadtest.p99BudgetMillis. A rate that needs a core or more of hashing has no budget it can meet, so 0 is
+     * returned and the run fails.
+     */
+    private static long bcryptBudgetMillis(Map<Endpoint, Integer> mix, double rate, long defaultBudget) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(Integer.getInteger("loadtest.bcryptStrength", 10));
+        for (int i = 0; i < 3; i++)
+            encoder.encode("warm-up");
+        int hashes = 10;
+        long start = System.nanoTime();
+        for (int i = 0; i < hashes; i++)
+            encoder.encode("password");
+        double hashMillis = (System.nanoTime() - start) / 1e6 / hashes;
+
+        int totalWeight = 0;
+        int hashingWeight = 0;
+        for (Map.Entry<Endpoint, Integer> weight : mix.entrySet()) {
+            totalWeight += weight.getValue();
+            if (weight.getKey().hashesPassword())
+                hashingWeight += weight.getValue();
+        }
+        int cores = Integer.getInteger("loadtest.serverCores", Runtime.getRuntime().availableProcessors());
+        double utilization = rate * hashingWeight / Math.max(totalWeight, 1) * hashMillis / 1000 / cores;
+        long budget = utilization < 1
+                ? defaultBudget + (long) Math.ceil(hashMillis * Math.log(100) / (1 - utilization))
+                : 0;
+        System.out.printf("bcrypt: %.1f ms per hash, %.2f utilization of %d cores, p99 budget %d ms%n",
+                hashMillis, utilization, cores, budget);
+        return budget;
+    }
+
+    /**
+     * Keeps loadtest.connections requests outstanding over the configured endpoint mix, and reports the throughput,
+     * latency, and the server's thread count and memory use at that concurrency. Runs only when loadtest.connections
+     * is set; it is used to compare the platform-thread and virtual-thread modes, not as a gate.
+     *
+     * Expected Result:
+     *  At most loadtest.maxErrorPercent of all requests did not return 200
+     */
+    @Test
+    public void holdConnections() throws IOException, InterruptedException {
+        int connections = Integer.getInteger("loadtest.connections", 0);
+        Assumptions.assumeTrue(connections > 0, "Set loadtest.connections to run the closed workload");
+        LoadGenerator generator = new LoadGenerator(URI.create(System.getProperty("loadtest.baseUrl", "http://localhost:8080")),
+                Long.getLong("loadtest.seed", 42));
+        generator.setUp(Integer.getInteger("loadtest.accounts", 50));
+
+        Map<Endpoint, Integer> mix = Endpoint.parseMix(System.getProperty("loadtest.mix",
+                "register=2,login=8,post=25,read=50,patch=10,delete=5"));
+        generator.hold(connections,
+                Duration.ofSeconds(Long.getLong("loadtest.warmupSeconds", 10)),
+                Duration.ofSeconds(Long.getLong("loadtest.durationSeconds", 30)),
+                mix);
+        generator.report(System.out, Path.of(System.getProperty("loadtest.reportDirectory", "target/loadtest")));
+        generator.reportServer(System.out);
+
+        long requests = 0;
+        long errors = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            requests += generator.latencies(endpoint).getTotalCount();
+            errors += generator.errors(endpoint);
+        }
+        double maxErrorPercent = Double.parseDouble(System.getProperty("loadtest.maxErrorPercent", "1"));
+        Assertions.assertTrue(100.0 * errors / Math.max(requests, 1) <= maxErrorPercent,
+                errors + " of " + requests + " requests failed");
+    }
+}
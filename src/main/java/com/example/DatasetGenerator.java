@@ -0,0 +1,239 @@
+package com.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk-loads a synthetic dataset when the application is started with the generate profile, for example
+ * mvn spring-boot:run -Dspring-boot.run.profiles=generate. Large datasets belong in a file database
+ * (spring.datasource.url=jdbc:h2:file:..., with spring.sql.init.mode=always), since an in-memory one holds every row on
+ * the heap.
+ *
+ * Accounts are named user{accountId} and all share the password "password", hashed once. The number of messages per
+ * account follows a Zipf distribution with exponent app.generator.zipf-exponent, with the most active accounts spread
+ * randomly over the id range. Message times are spread evenly over the last app.generator.days days with random
+ * jitter, and never decrease as messageId increases, as they would if ids were assigned in posting order.
+ *
+ * Rows are written to CSV files of app.generator.chunk-size rows and loaded with H2's CSVREAD, one statement and
+ * transaction per file. app.generator.threads chunks are written and loaded at once, each chunk drawing from its own
+ * split of the seeded random generator, so the dataset does not depend on the number of threads. While messages load,
+ * the postedBy index and the postedBy foreign key are dropped. They are rebuilt once at the end, without re-checking rows that reference
+ * generated accounts by construction, which is several times faster than maintaining both row by row. Generated ids
+ * start after the largest existing id, and the sequences are restarted past them afterwards, so later inserts through
+ * Hibernate or the column defaults do not collide.
+ */
+@Component
+@Profile("generate")
+public class DatasetGenerator implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatasetGenerator.class);
+    private static final String PASSWORD = "password";
+    private static final String MESSAGE_POSTED_BY_INDEX = "message_postedBy_timePostedEpoch_idx";
+    private static final String MESSAGE_POSTED_BY_FK = "message_postedBy_fk";
+    private static final String[] WORDS = {
+            "the", "a", "today", "just", "new", "post", "coffee", "morning", "weekend", "great", "really", "think",
+            "love", "game", "music", "work", "finally", "happy", "news", "team", "project", "city", "food", "travel",
+            "photo", "friends", "family", "tonight", "launch", "update", "learning", "java", "spring", "code", "blog"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int accounts;
+    private final int messages;
+    private final double zipfExponent;
+    private final int days;
+    private final int chunkSize;
+    private final int threads;
+    private final long seed;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate,
+                            @Value("${app.generator.accounts:100000}") int accounts,
+                            @Value("${app.generator.messages:10000000}") int messages,
+                            @Value("${app.generator.zipf-exponent:1.0}") double zipfExponent,
+                            @Value("${app.generator.days:365}") int days,
+                            @Value("${app.generator.chunk-size:1000000}") int chunkSize,
+                            @Value("${app.generator.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+                            @Value("${app.generator.seed:42}") long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.accounts = accounts;
+        this.messages = messages;
+        this.zipfExponent = zipfExponent;
+        this.days = days;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (messages > 0 && accounts <= 0)
+            throw new IllegalArgumentException("app.generator.accounts must be positive to generate messages");
+
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        Path directory = Files.createTempDirectory("dataset");
+        ExecutorService loader = Executors.newFixedThreadPool(threads);
+        try {
+            int firstAccountId = nextId("select coalesce(max(accountId), 0) + 1 from account");
+            String passwordHash = new BCryptPasswordEncoder().encode(PASSWORD);
+            load(loader, directory, random, "account", "accountId, username, password",
+                    "cast(accountId as int), username, password", accounts, (i, rowRandom, text) -> {
+                int accountId = firstAccountId + i;
+                return accountId + ",user" + accountId + "," + passwordHash;
+            });
+
+            int firstMessageId = nextId("select coalesce(max(messageId), 0) + 1 from message");
+            int[] postedBy = postersByRank(firstAccountId, random.split());
+            double[] cumulativeWeights = zipfCumulativeWeights();
+            long end = Instant.now().getEpochSecond();
+            long span = Duration.ofDays(days).getSeconds();
+            double secondsPerMessage = (double) span / Math.max(1, messages);
+            jdbcTemplate.execute("alter table message drop constraint " + MESSAGE_POSTED_BY_FK);
+            jdbcTemplate.execute("drop index " + MESSAGE_POSTED_BY_INDEX);
+            try {
+                load(loader, directory, random, "message", "messageId, postedBy, messageText, timePostedEpoch",
+                        "cast(messageId as int), cast(postedBy as int), messageText, cast(timePostedEpoch as bigint)",
+                        messages, (i, rowRandom, text) -> {
+                            int rank = Arrays.binarySearch(cumulativeWeights, rowRandom.nextDouble());
+                            long timePostedEpoch = end - span + (long) ((i + rowRandom.nextDouble()) * secondsPerMessage);
+                            return (firstMessageId + i) + "," + postedBy[rank < 0 ? -rank - 1 : rank] + "," +
+                                    messageText(rowRandom, text) + "," + timePostedEpoch;
+                        });
+            } finally {
+                jdbcTemplate.execute("create index " + MESSAGE_POSTED_BY_INDEX +
+                        " on message (postedBy, timePostedEpoch desc, messageId desc)");
+                jdbcTemplate.execute("alter table message add constraint " + MESSAGE_POSTED_BY_FK +
+                        " foreign key (postedBy) references account(accountId) nocheck");
+            }
+
+            restartSequence("account_seq", "select coalesce(max(accountId), 0) + 1 from account");
+            restartSequence("message_seq", "select coalesce(max(messageId), 0) + 1 from message");
+        } finally {
+            loader.shutdown();
+            loader.awaitTermination(1, TimeUnit.MINUTES);
+            FileSystemUtils.deleteRecursively(directory);
+        }
+        LOGGER.info("Generated {} accounts and {} messages in {} ms", accounts, messages,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Writes rows to CSV files of at most chunkSize rows and loads each one into the table with CSVREAD, one chunk per
+     * loader thread at a time. Each chunk gets its own split of random, taken in chunk order.
+     */
+    private void load(ExecutorService loader, Path directory, SplittableRandom random, String table, String columns,
+                      String typedColumns, int rows, Row row) throws Exception {
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int start = 0, chunk = 0; start < rows; start += chunkSize, chunk++) {
+            Path file = directory.resolve(table + "-" + chunk + ".csv");
+            int first = start;
+            int last = Math.min(rows, start + chunkSize);
+            SplittableRandom chunkRandom = random.split();
+            chunks.add(loader.submit(() -> {
+                try {
+                    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                        writer.write(columns.replace(" ", ""));
+                        writer.newLine();
+                        StringBuilder text = new StringBuilder();
+                        for (int i = first; i < last; i++) {
+                            writer.write(row.format(i, chunkRandom, text));
+                            writer.newLine();
+                        }
+                    }
+                    // CSVREAD yields character columns, so convert them explicitly rather than per value on insert
+                    jdbcTemplate.update("insert into " + table + " (" + columns + ") select " + typedColumns +
+                            " from csvread('" + file.toAbsolutePath() + "', null, 'charset=UTF-8')");
+                    Files.delete(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        for (Future<?> chunk : chunks)
+            chunk.get();
+    }
+
+    /**
+     * Returns the accountId posting at each Zipf rank: a random permutation of the generated accounts, so the most
+     * active accounts are not simply the lowest ids.
+     */
+    private int[] postersByRank(int firstAccountId, SplittableRandom random) {
+        int[] postedBy = new int[accounts];
+        for (int i = 0; i < accounts; i++)
+            postedBy[i] = firstAccountId + i;
+        for (int i = accounts - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = postedBy[i];
+            postedBy[i] = postedBy[j];
+            postedBy[j] = swap;
+        }
+        return postedBy;
+    }
+
+    /**
+     * Returns the normalized cumulative weights of ranks 1..accounts under Zipf's law, weight(k) = 1 / k^s, so a
+     * uniform random number can be mapped to a rank with a binary search.
+     */
+    private double[] zipfCumulativeWeights() {
+        double[] cumulative = new double[accounts];
+        double total = 0;
+        for (int k = 0; k < accounts; k++) {
+            total += 1 / Math.pow(k + 1, zipfExponent);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < accounts; k++)
+            cumulative[k] /= total;
+        cumulative[accounts - 1] = 1.0;
+        return cumulative;
+    }
+
+    /**
+     * Formats row i of a table as a CSV line, drawing any randomness from the random of its chunk.
+     */
+    private interface Row {
+        String format(int i, SplittableRandom random, StringBuilder text);
+    }
+
+    private static String messageText(SplittableRandom random, StringBuilder text) {
+        text.setLength(0);
+        for (int words = 3 + random.nextInt(15); words > 0; words--) {
+            if (text.length() > 0)
+                text.append(' ');
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private int nextId(String sql) {
+        Integer nextId = jdbcTemplate.queryForObject(sql, Integer.class);
+        return nextId == null ? 1 : nextId;
+    }
+
+    private void restartSequence(String sequence, String nextIdSql) {
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + nextId(nextIdSql));
+    }
+}
@@ -2,8 +2,12 @@ package com.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.cache.annotation.EnableCaching;
 
-@SpringBootApplication
+// the reactive endpoints create their own R2DBC client on the JDBC database; see ReactiveDataConfig
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableCaching
 public class SocialMediaApp {
     /**
      * Runs the application.
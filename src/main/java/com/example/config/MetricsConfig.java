@@ -0,0 +1,25 @@
+package com.example.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables @Timed on Spring beans. The services are annotated at class level, which records every public method as
+ * app.service.calls, tagged with class, method and the exception thrown, if any.
+ *
+ * Controller mappings (http.server.requests), Spring Data repository methods (spring.data.repository.invocations) and
+ * the HikariCP pool (hikaricp.connections.*) are instrumented by Spring Boot itself once Micrometer is present. All of
+ * them are scraped in Prometheus text format from /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String SERVICE_TIMER = "app.service.calls";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs the reactive endpoints on Reactor Netty. Tomcat is on the classpath for the servlet endpoints, and Spring Boot
+ * prefers it over Netty for a reactive application too, which would serve WebFlux through the Servlet API adapter:
+ * every response would be completed through an AsyncContext, from whichever thread emitted it, on Tomcat's blocking
+ * connector. Declaring the factory takes precedence over that choice.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class NettyConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.config;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Provides the R2DBC DatabaseClient used by the reactive message endpoints. It is only created when the application
+ * runs as a reactive web application (spring.main.web-application-type=reactive).
+ *
+ * The connection factory opens sessions on the same H2 database as spring.datasource.url, so the schema and seed data
+ * written by data.sql through JDBC are visible to the reactive repositories. It is deliberately not exposed as a bean:
+ * Spring Boot would otherwise run data.sql through R2DBC instead of JDBC, before Hibernate has created the tables.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDataConfig {
+
+    private static final String H2_JDBC_PREFIX = "jdbc:h2:";
+
+    @Bean
+    public DatabaseClient databaseClient(@Value("${spring.datasource.url}") String url,
+                                         @Value("${spring.datasource.username:}") String username,
+                                         @Value("${spring.datasource.password:}") String password) {
+        if (!url.startsWith(H2_JDBC_PREFIX))
+            throw new IllegalStateException("The reactive endpoints require an H2 spring.datasource.url, but was: " + url);
+
+        H2ConnectionConfiguration configuration = H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_JDBC_PREFIX.length()))
+                .username(username)
+                .password(password)
+                .build();
+        return DatabaseClient.create(new H2ConnectionFactory(configuration));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.config;
+
+import com.example.controller.SessionAccountArgumentResolver;
+import com.example.service.AccountService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Registers the resolver of @SessionAccount parameters, so every endpoint acting for an Account accepts a session
+ * token the same way.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class SessionAccountMvcConfig implements WebMvcConfigurer {
+
+    private final AccountService accountService;
+
+    public SessionAccountMvcConfig(AccountService accountService) {
+        this.accountService = accountService;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new SessionAccountArgumentResolver(accountService));
+    }
+}
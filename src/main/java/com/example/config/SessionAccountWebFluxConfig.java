@@ -0,0 +1,27 @@
+package com.example.config;
+
+import com.example.controller.ReactiveSessionAccountArgumentResolver;
+import com.example.service.AccountService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+/**
+ * Registers the resolver of @SessionAccount parameters in reactive mode, as SessionAccountMvcConfig does.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class SessionAccountWebFluxConfig implements WebFluxConfigurer {
+
+    private final AccountService accountService;
+
+    public SessionAccountWebFluxConfig(AccountService accountService) {
+        this.accountService = accountService;
+    }
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new ReactiveSessionAccountArgumentResolver(accountService));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Shrinks Tomcat's per-connection socket read and write buffers from 8KB to app.tomcat.socket-buffer-size. Every open
+ * connection holds both buffers, including idle Server-Sent Event subscriptions, which is where most of the memory of
+ * a node with tens of thousands of subscribers goes. Responses larger than the buffer are written to the socket
+ * directly, so the smaller size does not add copies for large pages.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TomcatConfig implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    private final DataSize socketBufferSize;
+
+    public TomcatConfig(@Value("${app.tomcat.socket-buffer-size:2KB}") DataSize socketBufferSize) {
+        this.socketBufferSize = socketBufferSize;
+    }
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        String size = String.valueOf(socketBufferSize.toBytes());
+        factory.addConnectorCustomizers(connector -> {
+            connector.setProperty("socket.appReadBufSize", size);
+            connector.setProperty("socket.appWriteBufSize", size);
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.controller;
+
+import com.example.entity.Account;
+import com.example.service.AccountService;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static com.example.controller.SessionAccountArgumentResolver.bearerToken;
+
+/**
+ * Resolves @SessionAccount parameters of ReactiveSocialMediaController, as SessionAccountArgumentResolver does.
+ */
+public class ReactiveSessionAccountArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final AccountService accountService;
+
+    public ReactiveSessionAccountArgumentResolver(AccountService accountService) {
+        this.accountService = accountService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(SessionAccount.class)
+                && Account.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext,
+                                        ServerWebExchange exchange) {
+        String token = bearerToken(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        return token == null ? Mono.empty() : Mono.fromCallable(() -> accountService.authenticate(token));
+    }
+}
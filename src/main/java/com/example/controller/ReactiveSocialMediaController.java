@@ -0,0 +1,288 @@
+package com.example.controller;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.exception.AccountMismatchException;
+import com.example.exception.DuplicateUsernameException;
+import com.example.exception.InvalidMessageTextException;
+import com.example.exception.InvalidUsernameOrPasswordException;
+import com.example.exception.RateLimitExceededException;
+import com.example.exception.ResourceNotFoundException;
+import com.example.service.AccountService;
+import com.example.service.IdempotencyStore;
+import com.example.service.ReactiveMessageService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.security.sasl.AuthenticationException;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.controller.SocialMediaController.IDEMPOTENCY_KEY_HEADER;
+import static com.example.controller.SocialMediaController.SESSION_TOKEN_HEADER;
+import static com.example.controller.SocialMediaController.checkSessionAccount;
+import static com.example.controller.SocialMediaController.postAs;
+
+/**
+ * The non-blocking implementation of the API on WebFlux, used when spring.main.web-application-type=reactive. It
+ * serves the same routes with the same behavior as SocialMediaController. The message routes read and write through
+ * R2DBC. Registration and login still go through AccountService, whose JDBC lookups and password hashing block, so
+ * they run on the bounded elastic scheduler rather than on the event loop.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSocialMediaController {
+
+    private final AccountService accountService;
+    private final ReactiveMessageService messageService;
+    private final IdempotencyStore idempotencyStore;
+
+    public ReactiveSocialMediaController(AccountService accountService, ReactiveMessageService messageService,
+                                         IdempotencyStore idempotencyStore) {
+        this.accountService = accountService;
+        this.messageService = messageService;
+        this.idempotencyStore = idempotencyStore;
+    }
+
+    /**
+     * Handles a POST request to create a new Account on the endpoint POST localhost:8080/register, as
+     * SocialMediaController.register does.
+     *
+     * @param account an Account object without an accountId
+     * @param idempotencyKey the Idempotency-Key request header, or null
+     * @return a Mono of a ResponseEntity object with response status 200 OK and response body containing the
+     * persisted Account object, including its accountId
+     * @throws InvalidUsernameOrPasswordException if username is blank or password is less than 4 characters long
+     * @throws DuplicateUsernameException if an Account with the given username already exists
+     */
+    @PostMapping("register")
+    public Mono<ResponseEntity<Account>> register(@RequestBody Account account,
+                                                  @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return Mono.fromCallable(() -> idempotencyKey == null
+                        ? accountService.register(account)
+                        : idempotencyStore.executeAsync("register", account.getUsername(), idempotencyKey,
+                                Arrays.asList(account.getUsername(), account.getPassword()), () -> accountService.register(account)
+                                .thenApply(persistedAccount ->
+                                        new Account(persistedAccount.getAccountId(), persistedAccount.getUsername(), null))))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::fromFuture)
+                .map(registeredAccount -> ResponseEntity.ok()
+                        .body(registeredAccount));
+    }
+
+    /**
+     * Handles a POST request to verify a login on the endpoint POST localhost:8080/login, as
+     * SocialMediaController.login does.
+     *
+     * @param account an Account object without an accountId, or null when a session token is presented
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a Mono of a ResponseEntity object with response status 200 OK and response body containing the
+     * persisted Account object, including its accountId (and without its password when authenticated by session
+     * token)
+     * @throws AuthenticationException if username and password do not match an existing Account, or if the session
+     * token is invalid or has expired
+     */
+    @PostMapping("login")
+    public Mono<ResponseEntity<Account>> login(@RequestBody(required = false) Account account,
+                                               @SessionAccount Account sessionAccount) {
+        if (sessionAccount != null)
+            return Mono.just(ResponseEntity.ok()
+                    .body(sessionAccount));
+
+        if (account == null)
+            return Mono.error(new AuthenticationException("Credentials could not be authenticated. Provide a username and password or a session token."));
+
+        return Mono.fromCallable(() -> accountService.login(account))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::fromFuture)
+                .map(authenticatedAccount -> ResponseEntity.ok()
+                        .header(SESSION_TOKEN_HEADER, accountService.issueSessionToken(authenticatedAccount))
+                        .body(authenticatedAccount));
+    }
+
+    /**
+     * Handles a POST request to process the creation of a new message on the endpoint POST localhost:8080/messages.
+     * If an Idempotency-Key header is given, a retry with the same key returns the originally created Message without
+     * creating another one. With a session token, postedBy may be left out.
+     *
+     * @param message a Message object without a messageId
+     * @param idempotencyKey the Idempotency-Key request header, or null
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a Mono of a ResponseEntity object with response status 200 OK and response body containing the
+     * persisted Message object, including its messageId
+     * @throws InvalidMessageTextException if messageText is blank or has more than 255 characters
+     * @throws ResourceNotFoundException if postedBy does not refer to an existing Account
+     * @throws RateLimitExceededException if the Account has posted too many Messages recently
+     * @throws AccountMismatchException if the session token is not that of postedBy
+     */
+    @PostMapping("messages")
+    public Mono<ResponseEntity<Message>> createMessage(@RequestBody Message message,
+                                                       @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                       @SessionAccount Account sessionAccount) {
+        postAs(sessionAccount, message);
+        Mono<Message> postedMessage = idempotencyKey == null
+                ? messageService.createMessage(message)
+                // a concurrent duplicate blocks until the first request completes, so wait off the event loop
+                : Mono.fromCallable(() -> idempotencyStore.execute("messages", message.getPostedBy(), idempotencyKey,
+                                Arrays.asList(message.getMessageText(), message.getTimePostedEpoch()),
+                                () -> messageService.createMessage(message).block()))
+                        .subscribeOn(Schedulers.boundedElastic());
+        return postedMessage.map(createdMessage -> ResponseEntity.ok()
+                .body(createdMessage));
+    }
+
+    /**
+     * Handles a GET request to retrieve a page of messages on the endpoint GET
+     * localhost:8080/messages?after={messageId}&limit={limit}. Both query parameters are optional. If a further page
+     * exists, its URL is returned in a Link header with rel="next".
+     *
+     * @param after the messageId of the last Message of the previous page, or null for the first page
+     * @param limit the maximum number of Messages to return, or null for the default page size
+     * @param request the current request, used to build the URL of the next page
+     * @return a Mono of a ResponseEntity object with response status 200 OK and response body containing a
+     * List<Message> object with the Messages of the requested page, ordered by messageId
+     */
+    @GetMapping("messages")
+    public Mono<ResponseEntity<List<Message>>> getAllMessages(@RequestParam(required = false) Integer after,
+                                                              @RequestParam(required = false) Integer limit,
+                                                              ServerHttpRequest request) {
+        return messageService.getMessages(after, limit)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.hasNext()) {
+                        List<Message> messages = page.getContent();
+                        String next = UriComponentsBuilder.fromUri(request.getURI())
+                                .replaceQueryParam("after", messages.get(messages.size() - 1).getMessageId())
+                                .replaceQueryParam("limit", page.getSize())
+                                .toUriString();
+                        response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+                    }
+                    return response.body(page.getContent());
+                });
+    }
+
+    /**
+     * Handles a GET request to retrieve all messages as newline-delimited JSON on the endpoint GET
+     * localhost:8080/messages with the header Accept: application/x-ndjson. Messages are read from the database only
+     * as fast as the client consumes them.
+     *
+     * @return a Flux streaming one JSON Message per line, ordered by messageId
+     */
+    @GetMapping(value = "messages", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Message> streamAllMessages() {
+        return messageService.streamAllMessages();
+    }
+
+    /**
+     * Handles a GET request to retrieve a message by its ID on the endpoint GET localhost:8080/messages/{messageId}.
+     *
+     * @param messageId an Integer denoting a potential messageId of a persisted Message
+     * @return a Mono of the persisted Message object identified by the input messageId, written with response status
+     * 200 OK, or an empty response body if there is no such Message
+     */
+    @GetMapping("messages/{messageId}")
+    public Mono<Message> getMessageById(@PathVariable Integer messageId) {
+        return messageService.getMessageById(messageId);
+    }
+
+    /**
+     * Handles a DELETE request to delete a message identified by a message ID on the endpoint DELETE
+     * localhost:8080/messages/{messageId}.
+     *
+     * @param messageId an Integer denoting a potential messageId of a persisted Message
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a Mono of the number of rows updated (1), written with response status 200 OK, or an empty response body
+     * if no rows were updated
+     * @throws AccountMismatchException if the session token is not that of the poster of the Message
+     */
+    @DeleteMapping("messages/{messageId}")
+    public Mono<Integer> deleteMessageById(@PathVariable Integer messageId, @SessionAccount Account sessionAccount) {
+        return checkPoster(sessionAccount, messageId)
+                .then(Mono.defer(() -> messageService.deleteMessageById(messageId)));
+    }
+
+    /**
+     * Handles a PATCH request to update a message text identified by a message ID on the endpoint PATCH
+     * localhost:8080/messages/{messageId}.
+     *
+     * @param messageId an Integer denoting a potential messageId of a persisted Message
+     * @param message a Message object without a messageId
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a Mono of a ResponseEntity object with response status 200 OK and response body containing the number of
+     * rows updated (1)
+     * @throws InvalidMessageTextException if messageText is blank or is over 255 characters
+     * @throws ResourceNotFoundException if messageId does not refer to an existing Message
+     * @throws AccountMismatchException if the session token is not that of the poster of the Message
+     */
+    @PatchMapping("messages/{messageId}")
+    public Mono<ResponseEntity<Integer>> updateMessageById(@PathVariable Integer messageId,
+                                                           @RequestBody Message message,
+                                                           @SessionAccount Account sessionAccount) {
+        return checkPoster(sessionAccount, messageId)
+                .then(Mono.defer(() -> messageService.updateMessageById(messageId, message.getMessageText())))
+                .map(rowsUpdated -> ResponseEntity.ok()
+                        .body(rowsUpdated));
+    }
+
+    /**
+     * Handles a GET request to retrieve a page of messages written by a particular user, newest first, on the endpoint
+     * GET localhost:8080/accounts/{accountId}/messages?beforeTime={timePostedEpoch}&beforeId={messageId}&limit={limit}.
+     * All query parameters are optional. If a further page exists, its URL is returned in a Link header with
+     * rel="next".
+     *
+     * @param accountId an Integer denoting a potential accountId of a persisted Account
+     * @param beforeTime the timePostedEpoch of the last Message of the previous page, or null for the first page or
+     *                   when that Message has no timePostedEpoch
+     * @param beforeId the messageId of the last Message of the previous page
+     * @param limit the maximum number of Messages to return, or null for the default page size
+     * @param request the current request, used to build the URL of the next page
+     * @return a Mono of a ResponseEntity object with response status 200 OK and response body containing a
+     * List<Message> object with the Messages of the requested page posted by the user identified by the accountId
+     */
+    @GetMapping("accounts/{accountId}/messages")
+    public Mono<ResponseEntity<List<Message>>> getAllMessagesByAccountId(@PathVariable Integer accountId,
+                                                                         @RequestParam(required = false) Long beforeTime,
+                                                                         @RequestParam(required = false) Integer beforeId,
+                                                                         @RequestParam(required = false) Integer limit,
+                                                                         ServerHttpRequest request) {
+        return messageService.getAllMessagesByAccountId(accountId, beforeTime, beforeId, limit)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    List<Message> messages = page.getContent();
+                    if (page.hasNext()) {
+                        Message last = messages.get(messages.size() - 1);
+                        UriComponentsBuilder next = UriComponentsBuilder.fromUri(request.getURI());
+                        if (last.getTimePostedEpoch() == null)
+                            next.replaceQueryParam("beforeTime");
+                        else
+                            next.replaceQueryParam("beforeTime", last.getTimePostedEpoch());
+                        next.replaceQueryParam("beforeId", last.getMessageId())
+                                .replaceQueryParam("limit", page.getSize());
+                        response.header(HttpHeaders.LINK, "<" + next.toUriString() + ">; rel=\"next\"");
+                    }
+                    return response.body(messages);
+                });
+    }
+
+    /**
+     * Checks that the Message about to be deleted or updated was posted by the Account of the session token, as
+     * SocialMediaController does.
+     */
+    private Mono<Void> checkPoster(Account sessionAccount, Integer messageId) {
+        if (sessionAccount == null)
+            return Mono.empty();
+
+        return messageService.getMessageById(messageId)
+                .doOnNext(message -> checkSessionAccount(sessionAccount, message.getPostedBy()))
+                .then();
+    }
+
+}
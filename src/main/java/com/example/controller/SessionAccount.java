@@ -0,0 +1,16 @@
+package com.example.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds an Account parameter of a controller method to the Account of the session token presented in an
+ * "Authorization: Bearer {token}" request header, or to null when the request carries no token. An unknown or expired
+ * token fails the request with an AuthenticationException before the method runs. The token is checked in memory.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SessionAccount {
+}
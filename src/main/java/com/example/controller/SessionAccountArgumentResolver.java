@@ -0,0 +1,48 @@
+package com.example.controller;
+
+import com.example.entity.Account;
+import com.example.service.AccountService;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resolves @SessionAccount parameters of SocialMediaController.
+ */
+public class SessionAccountArgumentResolver implements HandlerMethodArgumentResolver {
+
+    static final String BEARER_PREFIX = "Bearer ";
+
+    private final AccountService accountService;
+
+    public SessionAccountArgumentResolver(AccountService accountService) {
+        this.accountService = accountService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(SessionAccount.class)
+                && Account.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Account resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                   NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        String token = bearerToken(webRequest.getHeader(HttpHeaders.AUTHORIZATION));
+        return token == null ? null : accountService.authenticate(token);
+    }
+
+    /**
+     * @param authorization the Authorization request header, or null
+     * @return the session token of a Bearer Authorization header, or null for any other or no header
+     */
+    static String bearerToken(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX))
+            return null;
+
+        return authorization.substring(BEARER_PREFIX.length());
+    }
+}
@@ -1,88 +1,277 @@
 package com.example.controller;
 
+import com.example.dto.MessageBatchResult;
+import com.example.dto.TrendingTag;
 import com.example.entity.Account;
 import com.example.entity.Message;
+import com.example.exception.AccountMismatchException;
 import com.example.exception.DuplicateUsernameException;
 import com.example.exception.InvalidUsernameOrPasswordException;
+import com.example.exception.InvalidFollowException;
+import com.example.exception.InvalidMessageBatchException;
 import com.example.exception.InvalidMessageTextException;
+import com.example.exception.RateLimitExceededException;
 import com.example.exception.ResourceNotFoundException;
 import com.example.service.AccountService;
+import com.example.service.IdempotencyStore;
+import com.example.service.LikeService;
+import com.example.service.MessageFeed;
 import com.example.service.MessageService;
+import com.example.service.TagService;
+import com.example.service.TimelineService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.security.sasl.AuthenticationException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * The blocking implementation of the API, used when the application runs as a servlet web application (the default).
+ * ReactiveSocialMediaController serves the same routes when spring.main.web-application-type=reactive.
+ */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SocialMediaController {
 
+    public static final String SESSION_TOKEN_HEADER = "X-Session-Token";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
     private final AccountService accountService;
     private final MessageService messageService;
+    private final IdempotencyStore idempotencyStore;
+    private final MessageFeed messageFeed;
+    private final TimelineService timelineService;
+    private final TagService tagService;
+    private final LikeService likeService;
+    private final ObjectWriter messageWriter;
+    private final long streamTimeoutMillis;
 
-    public SocialMediaController(AccountService accountService, MessageService messageService) {
+    public SocialMediaController(AccountService accountService, MessageService messageService,
+                                 IdempotencyStore idempotencyStore, MessageFeed messageFeed,
+                                 TimelineService timelineService, TagService tagService,
+                                 LikeService likeService, ObjectMapper objectMapper,
+                                 @Value("${app.messages.stream-timeout:10m}") Duration streamTimeout) {
         this.accountService = accountService;
         this.messageService = messageService;
+        this.idempotencyStore = idempotencyStore;
+        this.messageFeed = messageFeed;
+        this.timelineService = timelineService;
+        this.tagService = tagService;
+        this.likeService = likeService;
+        this.messageWriter = objectMapper.writerFor(Message.class);
+        this.streamTimeoutMillis = streamTimeout.toMillis();
     }
 
     /**
-     * Handles a POST request to create a new Account on the endpoint POST localhost:8080/register.
+     * Handles a POST request to create a new Account on the endpoint POST localhost:8080/register. If an
+     * Idempotency-Key header is given, a retry with the same key returns the originally registered Account without
+     * registering again; in that case the response omits the password, since it is kept in memory for replay.
      *
      * @param account an Account object without an accountId
-     * @return a ResponseEntity object with response status 200 OK and response body containing the persisted Account
-     * object, including its accountId
+     * @param idempotencyKey the Idempotency-Key request header, or null
+     * @return a CompletableFuture of a ResponseEntity object with response status 200 OK and response body containing
+     * the persisted Account object, including its accountId. The password is hashed on the password hashing pool, so
+     * the servlet thread is released meanwhile.
      * @throws InvalidUsernameOrPasswordException if username is blank or password is less than 4 characters long
      * @throws DuplicateUsernameException if an Account with the given username already exists
      */
     @PostMapping("register")
-    public ResponseEntity<Account> register(@RequestBody Account account) {
-        Account registeredAccount = accountService.register(account);
-        return ResponseEntity.ok()
-                .body(registeredAccount);
+    public CompletableFuture<ResponseEntity<Account>> register(@RequestBody Account account,
+                                                               @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        CompletableFuture<Account> registeredAccount = idempotencyKey == null
+                ? accountService.register(account)
+                : idempotencyStore.executeAsync("register", account.getUsername(), idempotencyKey,
+                        Arrays.asList(account.getUsername(), account.getPassword()), () -> accountService.register(account)
+                        .thenApply(persistedAccount ->
+                                new Account(persistedAccount.getAccountId(), persistedAccount.getUsername(), null)));
+        return registeredAccount.thenApply(persistedAccount -> ResponseEntity.ok()
+                .body(persistedAccount));
     }
 
     /**
-     * Handles a POST request to verify a login on the endpoint POST localhost:8080/login.
+     * Handles a POST request to verify a login on the endpoint POST localhost:8080/login. A successful login with a
+     * username and password returns a new session token in the X-Session-Token response header. Presenting that token
+     * in an "Authorization: Bearer {token}" request header, with no request body, logs in again without credentials
+     * and without a database lookup. The other endpoints acting on behalf of an Account accept the token as well.
      *
-     * @param account an Account object without an accountId
-     * @return a ResponseEntity object with response status 200 OK and response body containing the persisted Account
-     * object, including its accountId
-     * @throws AuthenticationException if username and password do not match an existing Account
+     * @param account an Account object without an accountId, or null when a session token is presented
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a CompletableFuture of a ResponseEntity object with response status 200 OK and response body containing
+     * the persisted Account object, including its accountId (and without its password when authenticated by session
+     * token). The password check runs on the password hashing pool, so the servlet thread is released meanwhile.
+     * @throws AuthenticationException if username and password do not match an existing Account, or if the session
+     * token is invalid or has expired
      */
     @PostMapping("login")
-    public ResponseEntity<Account> login(@RequestBody Account account) throws AuthenticationException {
-        Account authenticatedAccount = accountService.login(account);
-        return ResponseEntity.ok()
-                .body(authenticatedAccount);
+    public CompletableFuture<ResponseEntity<Account>> login(@RequestBody(required = false) Account account,
+                                                            @SessionAccount Account sessionAccount)
+            throws AuthenticationException {
+        if (sessionAccount != null)
+            return CompletableFuture.completedFuture(ResponseEntity.ok()
+                    .body(sessionAccount));
+
+        if (account == null)
+            throw new AuthenticationException("Credentials could not be authenticated. Provide a username and password or a session token.");
+
+        return accountService.login(account)
+                .thenApply(authenticatedAccount -> ResponseEntity.ok()
+                        .header(SESSION_TOKEN_HEADER, accountService.issueSessionToken(authenticatedAccount))
+                        .body(authenticatedAccount));
     }
 
     /**
-     * Handles a POST request to process the creation of a new message on the endpoint POST localhost:8080/messages.
+     * Handles a POST request to process the creation of a new message on the endpoint POST localhost:8080/messages. If
+     * an Idempotency-Key header is given, a retry with the same key returns the originally created Message without
+     * creating another one. With a session token, postedBy may be left out.
      *
      * @param message a Message object without a messageId
+     * @param idempotencyKey the Idempotency-Key request header, or null
+     * @param sessionAccount the Account of the session token presented, or null
      * @return a ResponseEntity object with response status 200 OK and response body containing the persisted Message
      * object, including its messageId
      * @throws InvalidMessageTextException if messageText is blank or has more than 255 characters
      * @throws ResourceNotFoundException if postedBy does not refer to an existing Account
+     * @throws RateLimitExceededException if the Account has posted too many Messages recently
+     * @throws AccountMismatchException if the session token is not that of postedBy
      */
     @PostMapping("messages")
-    public ResponseEntity<Message> createMessage(@RequestBody Message message) {
-        Message postedMessage = messageService.createMessage(message);
+    public ResponseEntity<Message> createMessage(@RequestBody Message message,
+                                                 @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                 @SessionAccount Account sessionAccount) {
+        postAs(sessionAccount, message);
+        Message postedMessage = idempotencyStore.execute("messages", message.getPostedBy(), idempotencyKey,
+                Arrays.asList(message.getMessageText(), message.getTimePostedEpoch()),
+                () -> messageService.createMessage(message));
         return ResponseEntity.ok()
                 .body(postedMessage);
     }
 
     /**
-     * Handles a GET request to retrieve all messages on the endpoint GET localhost:8080/messages.
+     * Handles a POST request to create several messages at once on the endpoint POST localhost:8080/messages/batch.
+     * Each Message is validated as in POST localhost:8080/messages, and an invalid Message, including a null one, is
+     * reported in its own result rather than failing the whole batch.
      *
+     * @param messages a List of Message objects without messageIds
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a ResponseEntity object with response status 200 OK and response body containing a
+     * List<MessageBatchResult> object with one result per input Message, in the same order
+     * @throws InvalidMessageBatchException if there are more than app.messages.max-page-size Messages
+     * @throws AccountMismatchException if the session token is not that of the postedBy of every Message
+     */
+    @PostMapping("messages/batch")
+    public ResponseEntity<List<MessageBatchResult>> createMessages(@RequestBody List<Message> messages,
+                                                                   @SessionAccount Account sessionAccount) {
+        for (Message message : messages) {
+            if (message != null)
+                postAs(sessionAccount, message);
+        }
+        List<MessageBatchResult> results = messageService.createMessages(messages);
+        return ResponseEntity.ok()
+                .body(results);
+    }
+
+    /**
+     * Handles a GET request to retrieve a page of messages on the endpoint GET
+     * localhost:8080/messages?after={messageId}&limit={limit}. Both query parameters are optional. If a further page
+     * exists, its URL is returned in a Link header with rel="next".
+     *
+     * @param after the messageId of the last Message of the previous page, or null for the first page
+     * @param limit the maximum number of Messages to return, or null for the default page size
      * @return a ResponseEntity object with response status 200 OK and response body containing a List<Message> object
-     * with all Messages in the database
+     * with the Messages of the requested page, ordered by messageId
      */
     @GetMapping("messages")
-    public ResponseEntity<List<Message>> getAllMessages() {
-        List<Message> messages = messageService.getAllMessages();
+    public ResponseEntity<List<Message>> getAllMessages(@RequestParam(required = false) Integer after,
+                                                        @RequestParam(required = false) Integer limit) {
+        Slice<Message> page = messageService.getMessages(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            List<Message> messages = page.getContent();
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", messages.get(messages.size() - 1).getMessageId())
+                    .replaceQueryParam("limit", page.getSize())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getContent());
+    }
+
+    /**
+     * Handles a GET request to retrieve all messages as newline-delimited JSON on the endpoint GET
+     * localhost:8080/messages with the header Accept: application/x-ndjson. Each Message is written to the response
+     * as soon as it is read from the database, so the full result set is never held in memory. The stream may run for
+     * up to app.messages.stream-timeout instead of the short server-wide async request timeout.
+     *
+     * @param request the current request, whose async timeout is raised for this stream
+     * @return a ResponseEntity object with response status 200 OK and a response body streaming one JSON Message per
+     * line, ordered by messageId
+     */
+    @GetMapping(value = "messages", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllMessages(HttpServletRequest request) {
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(streamTimeoutMillis);
+        StreamingResponseBody body = outputStream -> messageService.streamAllMessages(message -> {
+            try {
+                outputStream.write(messageWriter.writeValueAsBytes(message));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
         return ResponseEntity.ok()
-                .body(messages);
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Handles a GET request to search messages on the endpoint GET localhost:8080/messages/search?q={words}&limit={limit}.
+     * A message matches if its text contains every word of q, ignoring case and punctuation.
+     *
+     * @param q the words to search for
+     * @param limit the maximum number of Messages to return, or null for the default page size
+     * @return a ResponseEntity object with response status 200 OK and response body containing a List<Message> object
+     * with the newest matching Messages, newest first; empty if q has no words
+     */
+    @GetMapping("messages/search")
+    public ResponseEntity<List<Message>> searchMessages(@RequestParam String q,
+                                                       @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok()
+                .body(messageService.searchMessages(q, limit));
+    }
+
+    /**
+     * Handles a GET request to subscribe to Message changes as Server-Sent Events on the endpoint GET
+     * localhost:8080/messages/events?accountId={accountId}. Each event is named created, updated or deleted, carries
+     * the Message as its data, and has an id the client can resume from by sending it back in a Last-Event-ID header
+     * (browsers' EventSource does this when it reconnects). A reset event means events were missed: the client should
+     * reload Messages with a GET request, then carry on from the reset event.
+     *
+     * @param accountId an Integer denoting a postedBy to receive events for, or null for every Message
+     * @param lastEventId the id of the last event the client received, or null to start with the next event
+     * @return an SseEmitter object streaming events as Messages are created, updated and deleted
+     */
+    @GetMapping(value = "messages/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessageEvents(@RequestParam(required = false) Integer accountId,
+                                          @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) Long lastEventId) {
+        return messageFeed.subscribe(accountId, lastEventId);
     }
 
     /**
@@ -104,11 +293,15 @@ public class SocialMediaController {
      * localhost:8080/messages/{messageId}.
      *
      * @param messageId an Integer denoting a potential messageId of a persisted Message
+     * @param sessionAccount the Account of the session token presented, or null
      * @return a ResponseEntity object with response status 200 OK and response body containing the number of rows
      * updated (1), or an empty response body if no rows were updated
+     * @throws AccountMismatchException if the session token is not that of the poster of the Message
      */
     @DeleteMapping("messages/{messageId}")
-    public ResponseEntity<Integer> deleteMessageById(@PathVariable Integer messageId) {
+    public ResponseEntity<Integer> deleteMessageById(@PathVariable Integer messageId,
+                                                     @SessionAccount Account sessionAccount) {
+        checkPoster(sessionAccount, messageId);
         Integer rowsUpdated = messageService.deleteMessageById(messageId);
         return ResponseEntity.ok()
                 .body(rowsUpdated);
@@ -120,32 +313,256 @@ public class SocialMediaController {
      *
      * @param messageId an Integer denoting a potential messageId of a persisted Message
      * @param message a Message object without a messageId
+     * @param sessionAccount the Account of the session token presented, or null
      * @return a ResponseEntity object with response status 200 OK and response body containing the number of rows
      * updated (1), or an empty response body if no rows were updated
      * @throws InvalidMessageTextException if messageText is blank or is over 255 characters
      * @throws ResourceNotFoundException if messageId does not refer to an existing Message
+     * @throws AccountMismatchException if the session token is not that of the poster of the Message
      */
     @PatchMapping("messages/{messageId}")
-    public ResponseEntity<Integer> updateMessageById(@PathVariable Integer messageId, @RequestBody Message message) {
+    public ResponseEntity<Integer> updateMessageById(@PathVariable Integer messageId, @RequestBody Message message,
+                                                     @SessionAccount Account sessionAccount) {
+        checkPoster(sessionAccount, messageId);
         Integer rowsUpdated = messageService.updateMessageById(messageId, message.getMessageText());
         return ResponseEntity.ok()
                 .body(rowsUpdated);
     }
 
     /**
-     * Handles a GET request to retrieve all messages written by a particular user on the endpoint GET
-     * localhost:8080/accounts/{accountId}/messages.
+     * Handles a GET request to retrieve a page of messages written by a particular user, newest first, on the endpoint
+     * GET localhost:8080/accounts/{accountId}/messages?beforeTime={timePostedEpoch}&beforeId={messageId}&limit={limit}.
+     * All query parameters are optional. If a further page exists, its URL is returned in a Link header with
+     * rel="next".
      *
      * @param accountId an Integer denoting a potential accountId of a persisted Account
+     * @param beforeTime the timePostedEpoch of the last Message of the previous page, or null for the first page or
+     *                   when that Message has no timePostedEpoch
+     * @param beforeId the messageId of the last Message of the previous page
+     * @param limit the maximum number of Messages to return, or null for the default page size
      * @return a ResponseEntity object with response status 200 OK and response body containing a List<Message> object
-     * with all Messages posted by the user identified by the accountId in the database
+     * with the Messages of the requested page posted by the user identified by the accountId
      */
     @GetMapping("accounts/{accountId}/messages")
-    public ResponseEntity<List<Message>> getAllMessagesByAccountId(@PathVariable Integer accountId) {
-        List<Message> messages = messageService.getAllMessagesByAccountId(accountId);
+    public ResponseEntity<List<Message>> getAllMessagesByAccountId(@PathVariable Integer accountId,
+                                                                   @RequestParam(required = false) Long beforeTime,
+                                                                   @RequestParam(required = false) Integer beforeId,
+                                                                   @RequestParam(required = false) Integer limit) {
+        return pageResponse(messageService.getAllMessagesByAccountId(accountId, beforeTime, beforeId, limit));
+    }
 
+    /**
+     * Handles a PUT request to make one user follow another on the endpoint PUT
+     * localhost:8080/accounts/{accountId}/following/{followeeId}.
+     *
+     * @param accountId an Integer denoting the accountId of the Account that follows
+     * @param followeeId an Integer denoting the accountId of the Account to follow
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a ResponseEntity object with response status 200 OK and response body containing the number of rows
+     * updated (1), or an empty response body if accountId already follows followeeId
+     * @throws InvalidFollowException if accountId and followeeId are the same
+     * @throws ResourceNotFoundException if either does not refer to an existing Account
+     * @throws AccountMismatchException if the session token is not that of accountId
+     */
+    @PutMapping("accounts/{accountId}/following/{followeeId}")
+    public ResponseEntity<Integer> follow(@PathVariable Integer accountId, @PathVariable Integer followeeId,
+                                          @SessionAccount Account sessionAccount) {
+        checkSessionAccount(sessionAccount, accountId);
+        Integer rowsUpdated = timelineService.follow(accountId, followeeId);
+        return ResponseEntity.ok()
+                .body(rowsUpdated);
+    }
+
+    /**
+     * Handles a DELETE request to make one user stop following another on the endpoint DELETE
+     * localhost:8080/accounts/{accountId}/following/{followeeId}.
+     *
+     * @param accountId an Integer denoting the accountId of the Account that follows
+     * @param followeeId an Integer denoting the accountId of the followed Account
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a ResponseEntity object with response status 200 OK and response body containing the number of rows
+     * updated (1), or an empty response body if accountId did not follow followeeId
+     * @throws AccountMismatchException if the session token is not that of accountId
+     */
+    @DeleteMapping("accounts/{accountId}/following/{followeeId}")
+    public ResponseEntity<Integer> unfollow(@PathVariable Integer accountId, @PathVariable Integer followeeId,
+                                            @SessionAccount Account sessionAccount) {
+        checkSessionAccount(sessionAccount, accountId);
+        Integer rowsUpdated = timelineService.unfollow(accountId, followeeId);
         return ResponseEntity.ok()
-                .body(messages);
+                .body(rowsUpdated);
+    }
+
+    /**
+     * Handles a GET request to retrieve a page of the home timeline of a user, the messages of the users they follow,
+     * newest first, on the endpoint GET
+     * localhost:8080/accounts/{accountId}/home?beforeTime={timePostedEpoch}&beforeId={messageId}&limit={limit}. Query
+     * parameters and paging work as for GET localhost:8080/accounts/{accountId}/messages.
+     *
+     * @param accountId an Integer denoting a potential accountId of a persisted Account
+     * @param beforeTime the timePostedEpoch of the last Message of the previous page, or null for the first page or
+     *                   when that Message has no timePostedEpoch
+     * @param beforeId the messageId of the last Message of the previous page
+     * @param limit the maximum number of Messages to return, or null for the default page size
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a ResponseEntity object with response status 200 OK and response body containing a List<Message> object
+     * with the Messages of the requested page posted by users that the user identified by the accountId follows
+     * @throws AccountMismatchException if the session token is not that of accountId
+     */
+    @GetMapping("accounts/{accountId}/home")
+    public ResponseEntity<List<Message>> getHomeTimeline(@PathVariable Integer accountId,
+                                                         @RequestParam(required = false) Long beforeTime,
+                                                         @RequestParam(required = false) Integer beforeId,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         @SessionAccount Account sessionAccount) {
+        checkSessionAccount(sessionAccount, accountId);
+        return pageResponse(timelineService.getHomeTimeline(accountId, beforeTime, beforeId, limit));
+    }
+
+    /**
+     * Handles a PUT request to make a user like a message on the endpoint PUT
+     * localhost:8080/accounts/{accountId}/likes/{messageId}.
+     *
+     * @param accountId an Integer denoting the accountId of the Account that likes the Message
+     * @param messageId an Integer denoting the messageId of the Message to like
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a ResponseEntity object with response status 200 OK and response body containing the number of rows
+     * updated (1), or an empty response body if accountId already likes messageId
+     * @throws ResourceNotFoundException if accountId or messageId does not refer to an existing Account or Message
+     * @throws AccountMismatchException if the session token is not that of accountId
+     */
+    @PutMapping("accounts/{accountId}/likes/{messageId}")
+    public ResponseEntity<Integer> like(@PathVariable Integer accountId, @PathVariable Integer messageId,
+                                        @SessionAccount Account sessionAccount) {
+        checkSessionAccount(sessionAccount, accountId);
+        Integer rowsUpdated = likeService.like(accountId, messageId);
+        return ResponseEntity.ok()
+                .body(rowsUpdated);
+    }
+
+    /**
+     * Handles a DELETE request to remove the like of a user from a message on the endpoint DELETE
+     * localhost:8080/accounts/{accountId}/likes/{messageId}.
+     *
+     * @param accountId an Integer denoting the accountId of the Account that liked the Message
+     * @param messageId an Integer denoting the messageId of the liked Message
+     * @param sessionAccount the Account of the session token presented, or null
+     * @return a ResponseEntity object with response status 200 OK and response body containing the number of rows
+     * updated (1), or an empty response body if accountId did not like messageId
+     * @throws AccountMismatchException if the session token is not that of accountId
+     */
+    @DeleteMapping("accounts/{accountId}/likes/{messageId}")
+    public ResponseEntity<Integer> unlike(@PathVariable Integer accountId, @PathVariable Integer messageId,
+                                          @SessionAccount Account sessionAccount) {
+        checkSessionAccount(sessionAccount, accountId);
+        Integer rowsUpdated = likeService.unlike(accountId, messageId);
+        return ResponseEntity.ok()
+                .body(rowsUpdated);
+    }
+
+    /**
+     * Handles a GET request to retrieve the number of likes of a message on the endpoint GET
+     * localhost:8080/messages/{messageId}/likes. Likes are counted in memory and written to the database in the
+     * background; the number returned includes those not yet written.
+     *
+     * @param messageId an Integer denoting a potential messageId of a persisted Message
+     * @return a ResponseEntity object with response status 200 OK and response body containing the number of likes,
+     * or 0 if there is no such Message
+     */
+    @GetMapping("messages/{messageId}/likes")
+    public ResponseEntity<Long> getLikeCount(@PathVariable Integer messageId) {
+        return ResponseEntity.ok()
+                .body(likeService.getLikeCount(messageId));
+    }
+
+    /**
+     * Handles a GET request to retrieve a page of the messages with a hashtag or mention, newest first, on the endpoint
+     * GET localhost:8080/tags/{tag}/messages?beforeTime={timePostedEpoch}&beforeId={messageId}&limit={limit}. A tag
+     * without a leading @ is a hashtag, with or without its #; hashtags are matched ignoring case. Query parameters and
+     * paging work as for GET localhost:8080/accounts/{accountId}/messages.
+     *
+     * @param tag a hashtag such as java, or a mention such as @testuser1
+     * @param beforeTime the timePostedEpoch of the last Message of the previous page, or null for the first page or
+     *                   when that Message has no timePostedEpoch
+     * @param beforeId the messageId of the last Message of the previous page
+     * @param limit the maximum number of Messages to return, or null for the default page size
+     * @return a ResponseEntity object with response status 200 OK and response body containing a List<Message> object
+     * with the Messages of the requested page that have the tag
+     */
+    @GetMapping("tags/{tag}/messages")
+    public ResponseEntity<List<Message>> getMessagesByTag(@PathVariable String tag,
+                                                          @RequestParam(required = false) Long beforeTime,
+                                                          @RequestParam(required = false) Integer beforeId,
+                                                          @RequestParam(required = false) Integer limit) {
+        return pageResponse(tagService.getMessagesByTag(tag, beforeTime, beforeId, limit));
+    }
+
+    /**
+     * Handles a GET request to retrieve the most used hashtags of the trending window on the endpoint GET
+     * localhost:8080/tags/trending?limit={limit}.
+     *
+     * @param limit the maximum number of tags to return, or null for the default
+     * @return a ResponseEntity object with response status 200 OK and response body containing a List<TrendingTag>
+     * object, most used first
+     */
+    @GetMapping("tags/trending")
+    public ResponseEntity<List<TrendingTag>> getTrendingTags(@RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok()
+                .body(tagService.getTrendingTags(limit));
+    }
+
+    /**
+     * Returns a page of Messages, with a Link header pointing to the next page if there is one. The cursor of a page
+     * ending on a Message without a timePostedEpoch is its beforeId alone.
+     */
+    private static ResponseEntity<List<Message>> pageResponse(Slice<Message> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        List<Message> messages = page.getContent();
+        if (page.hasNext()) {
+            Message last = messages.get(messages.size() - 1);
+            UriComponentsBuilder next = ServletUriComponentsBuilder.fromCurrentRequest();
+            if (last.getTimePostedEpoch() == null)
+                next.replaceQueryParam("beforeTime");
+            else
+                next.replaceQueryParam("beforeTime", last.getTimePostedEpoch());
+            next.replaceQueryParam("beforeId", last.getMessageId())
+                    .replaceQueryParam("limit", page.getSize());
+            response.header(HttpHeaders.LINK, "<" + next.toUriString() + ">; rel=\"next\"");
+        }
+        return response.body(messages);
+    }
+
+    /**
+     * Checks that the Message about to be deleted or updated was posted by the Account of the session token, if one
+     * was presented. A Message that does not exist is left to the service to report.
+     */
+    private void checkPoster(Account sessionAccount, Integer messageId) {
+        if (sessionAccount == null)
+            return;
+
+        Message message = messageService.getMessageById(messageId);
+        if (message != null)
+            checkSessionAccount(sessionAccount, message.getPostedBy());
+    }
+
+    /**
+     * Posts a Message as the Account of the session token, if one was presented: a missing postedBy is taken from the
+     * token, and a different one is rejected.
+     */
+    static void postAs(Account sessionAccount, Message message) {
+        if (sessionAccount != null && message.getPostedBy() == null)
+            message.setPostedBy(sessionAccount.getAccountId());
+        checkSessionAccount(sessionAccount, message.getPostedBy());
+    }
+
+    /**
+     * Rejects a request acting on behalf of accountId with the session token of another Account. Requests without a
+     * token are not checked.
+     */
+    static void checkSessionAccount(Account sessionAccount, Integer accountId) {
+        if (sessionAccount != null && !sessionAccount.getAccountId().equals(accountId))
+            throw new AccountMismatchException("The session token was issued for account " +
+                    sessionAccount.getAccountId() + " and cannot act for account " + accountId + ".");
     }
 
 }
@@ -0,0 +1,95 @@
+package com.example.dto;
+
+import com.example.entity.Message;
+
+/**
+ * The outcome of one item of a POST localhost:8080/messages/batch request. Items are reported in request order, so the
+ * result at index i describes the Message at index i of the request body.
+ */
+public class MessageBatchResult {
+    /**
+     * The HTTP status this item would have received from POST localhost:8080/messages (200, 400 or 429).
+     */
+    private int status;
+    /**
+     * The persisted Message, including its messageId, if the item was created; otherwise null.
+     */
+    private Message message;
+    /**
+     * The reason the item was rejected, if it was not created; otherwise null.
+     */
+    private String error;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public MessageBatchResult() {
+    }
+    /**
+     * @param status
+     * @param message
+     * @param error
+     */
+    public MessageBatchResult(int status, Message message, String error) {
+        this.status = status;
+        this.message = message;
+        this.error = error;
+    }
+    /**
+     * @param message the persisted Message
+     * @return a result with status 200 OK for the given Message
+     */
+    public static MessageBatchResult created(Message message) {
+        return new MessageBatchResult(200, message, null);
+    }
+    /**
+     * @param error the reason the item was rejected
+     * @return a result with status 400 BAD_REQUEST and the given error
+     */
+    public static MessageBatchResult rejected(String error) {
+        return new MessageBatchResult(400, null, error);
+    }
+    /**
+     * @param error the reason the item was throttled
+     * @return a result with status 429 TOO_MANY_REQUESTS and the given error
+     */
+    public static MessageBatchResult throttled(String error) {
+        return new MessageBatchResult(429, null, error);
+    }
+    /**
+     * @return status
+     */
+    public int getStatus() {
+        return status;
+    }
+    /**
+     * @param status
+     */
+    public void setStatus(int status) {
+        this.status = status;
+    }
+    /**
+     * @return message
+     */
+    public Message getMessage() {
+        return message;
+    }
+    /**
+     * @param message
+     */
+    public void setMessage(Message message) {
+        this.message = message;
+    }
+    /**
+     * @return error
+     */
+    public String getError() {
+        return error;
+    }
+    /**
+     * @param error
+     */
+    public void setError(String error) {
+        this.error = error;
+    }
+}
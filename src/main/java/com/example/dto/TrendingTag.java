@@ -0,0 +1,82 @@
+package com.example.dto;
+
+import java.util.Objects;
+
+/**
+ * One entry of GET localhost:8080/tags/trending: a hashtag and the estimated number of Messages using it in the
+ * trending window.
+ */
+public class TrendingTag {
+    /**
+     * The hashtag, lower-cased and without its leading #.
+     */
+    private String tag;
+    /**
+     * An estimate of the number of Messages in the trending window using the tag. It may exceed the true number by a
+     * small fraction of all tag uses in the window, but is never below it.
+     */
+    private long count;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public TrendingTag() {
+    }
+    /**
+     * @param tag
+     * @param count
+     */
+    public TrendingTag(String tag, long count) {
+        this.tag = tag;
+        this.count = count;
+    }
+    /**
+     * @return tag
+     */
+    public String getTag() {
+        return tag;
+    }
+    /**
+     * @param tag
+     */
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+    /**
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+    /**
+     * @param count
+     */
+    public void setCount(long count) {
+        this.count = count;
+    }
+    /**
+     * Overriding the default equals() method allows Assert.assertEquals and List.contains to function.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TrendingTag that = (TrendingTag) o;
+        return count == that.count && Objects.equals(tag, that.tag);
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hash(tag, count);
+    }
+    /**
+     * Overriding the default toString() method allows for easy debugging.
+     * @return a String representation of this class.
+     */
+    @Override
+    public String toString() {
+        return "TrendingTag{" +
+                "tag='" + tag + '\'' +
+                ", count=" + count +
+                '}';
+    }
+}
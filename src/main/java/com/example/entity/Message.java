@@ -1,15 +1,35 @@
 package com.example.entity;
 
-import javax.persistence.*;
+import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 @Entity
 @Table(name="message")
 public class Message {
+    /**
+     * The number of ids reserved by each value taken from message_seq, which is its increment.
+     */
+    public static final int ID_BLOCK_SIZE = 50;
+    /**
+     * The ids of the test messages in data.sql, which are never handed out.
+     */
+    public static final int RESERVED_MIN_ID = 9996;
+    public static final int RESERVED_MAX_ID = 9999;
+
      /**
-     * An id for this message which will be automatically generated by the database.
+     * An id for this message. Ids are drawn from message_seq in blocks of 50 (pooled-lo), so inserts need no
+     * round trip to the sequence apart from one per block and can be sent as JDBC batches. The ids 9996 to 9999 of the
+     * test messages in data.sql are skipped.
      */
      @Column (name="messageId")
-     @Id @GeneratedValue
+     @Id @GeneratedValue(generator = "message_seq")
+     @GenericGenerator(name = "message_seq", type = ReservedIdSequenceGenerator.class, parameters = {
+             @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "message_seq"),
+             @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + ID_BLOCK_SIZE),
+             @Parameter(name = ReservedIdSequenceGenerator.RESERVED_MIN_PARAM, value = "" + RESERVED_MIN_ID),
+             @Parameter(name = ReservedIdSequenceGenerator.RESERVED_MAX_PARAM, value = "" + RESERVED_MAX_ID)})
     private Integer messageId;
     /**
      * The id for the user who has posted this message. We will assume that this is provided by the front-end of this
@@ -0,0 +1,44 @@
+package com.example.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * A sequence generator that never hands out the ids of rows inserted with explicit ids, such as the test rows of
+ * data.sql. Hibernate reserves ids in blocks of increment_size, so a block can contain such an id while the sequence
+ * itself never returns it; the generator skips those ids within the block instead. Plain SQL inserts through the column
+ * default only ever take the first id of a block, so they need no such check as long as no reserved id starts a block.
+ *
+ * Parameters, besides those of SequenceStyleGenerator:
+ * reserved_min and reserved_max, the inclusive range of ids to skip.
+ */
+public class ReservedIdSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String RESERVED_MIN_PARAM = "reserved_min";
+    public static final String RESERVED_MAX_PARAM = "reserved_max";
+
+    private long reservedMin;
+    private long reservedMax;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, parameters, serviceRegistry);
+        reservedMin = ConfigurationHelper.getLong(RESERVED_MIN_PARAM, parameters, 1);
+        reservedMax = ConfigurationHelper.getLong(RESERVED_MAX_PARAM, parameters, 0);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        Object id;
+        do {
+            id = super.generate(session, object);
+        } while (((Number) id).longValue() >= reservedMin && ((Number) id).longValue() <= reservedMax);
+        return id;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.exception;
+
+public class AccountMismatchException extends RuntimeException {
+    public AccountMismatchException(String message) {
+        super(message);
+    }
+}
@@ -1,16 +1,31 @@
 package com.example.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import javax.security.sasl.AuthenticationException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class ExceptionAndErrorController {
 
+    /**
+     * Counts the exceptions handled here, tagged with the simple class name of the exception.
+     */
+    public static final String EXCEPTION_COUNTER = "app.exceptions";
+
+    private final MeterRegistry meterRegistry;
+
+    public ExceptionAndErrorController(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     /**
      * If a required parameter is missing, returns response status 400 BAD_REQUEST.
      *
@@ -20,6 +35,7 @@ public class ExceptionAndErrorController {
     @ExceptionHandler(MissingServletRequestParameterException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public String handleMissingParams(MissingServletRequestParameterException ex) {
+        count(ex);
         return ex.getParameterName() + " is missing in the query parameters and is required.";
     }
 
@@ -32,6 +48,7 @@ public class ExceptionAndErrorController {
     @ExceptionHandler(DuplicateUsernameException.class)
     @ResponseStatus(HttpStatus.CONFLICT)
     public String handleDuplicateUsername(DuplicateUsernameException ex) {
+        count(ex);
         return ex.getMessage();
     }
 
@@ -45,6 +62,7 @@ public class ExceptionAndErrorController {
     @ExceptionHandler(InvalidUsernameOrPasswordException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public String handleInvalidUsernameOrPassword(InvalidUsernameOrPasswordException ex) {
+        count(ex);
         return ex.getMessage();
     }
 
@@ -57,6 +75,20 @@ public class ExceptionAndErrorController {
     @ExceptionHandler(ResourceNotFoundException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public String handleNotFound(ResourceNotFoundException ex) {
+        count(ex);
+        return ex.getMessage();
+    }
+
+    /**
+     * If an Account tries to follow itself, returns response status 400 BAD_REQUEST.
+     *
+     * @param ex an InvalidFollowException object
+     * @return the detail message String of this exception
+     */
+    @ExceptionHandler(InvalidFollowException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidFollow(InvalidFollowException ex) {
+        count(ex);
         return ex.getMessage();
     }
 
@@ -70,6 +102,21 @@ public class ExceptionAndErrorController {
     @ExceptionHandler(AuthenticationException.class)
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
     public String handleUnauthorized(AuthenticationException ex) {
+        count(ex);
+        return ex.getMessage();
+    }
+
+    /**
+     * If a session token is presented for an action on behalf of a different Account, returns response status 403
+     * FORBIDDEN.
+     *
+     * @param ex an AccountMismatchException object
+     * @return the detail message String of this exception
+     */
+    @ExceptionHandler(AccountMismatchException.class)
+    @ResponseStatus(HttpStatus.FORBIDDEN)
+    public String handleAccountMismatch(AccountMismatchException ex) {
+        count(ex);
         return ex.getMessage();
     }
 
@@ -83,7 +130,83 @@ public class ExceptionAndErrorController {
     @ExceptionHandler(InvalidMessageTextException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public String handleInvalidMessageText(InvalidMessageTextException ex) {
+        count(ex);
         return ex.getMessage();
     }
 
+    /**
+     * If a batch of Messages has more items than a single request may create, returns response status 400
+     * BAD_REQUEST.
+     *
+     * @param ex an InvalidMessageBatchException object
+     * @return the detail message String of this exception
+     */
+    @ExceptionHandler(InvalidMessageBatchException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidMessageBatch(InvalidMessageBatchException ex) {
+        count(ex);
+        return ex.getMessage();
+    }
+
+    /**
+     * If an Idempotency-Key is reused for a request with a different body, returns response status 422
+     * UNPROCESSABLE_ENTITY.
+     *
+     * @param ex an IdempotencyKeyMismatchException object
+     * @return the detail message String of this exception
+     */
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public String handleIdempotencyKeyMismatch(IdempotencyKeyMismatchException ex) {
+        count(ex);
+        return ex.getMessage();
+    }
+
+    /**
+     * If the request first made with an Idempotency-Key is still running after app.idempotency.wait-timeout, returns
+     * response status 409 CONFLICT.
+     *
+     * @param ex an IdempotencyKeyInUseException object
+     * @return the detail message String of this exception
+     */
+    @ExceptionHandler(IdempotencyKeyInUseException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public String handleIdempotencyKeyInUse(IdempotencyKeyInUseException ex) {
+        count(ex);
+        return ex.getMessage();
+    }
+
+    /**
+     * If a bounded worker pool, such as the password hashing pool, cannot accept more work, returns response status 503
+     * SERVICE_UNAVAILABLE.
+     *
+     * @param ex a RejectedExecutionException object
+     * @return a message asking the client to retry
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleRejectedExecution(RejectedExecutionException ex) {
+        count(ex);
+        return "The server is busy. Please try again shortly.";
+    }
+
+    /**
+     * If an Account has posted messages faster than its rate limit allows, returns response status 429
+     * TOO_MANY_REQUESTS with a Retry-After header giving the number of seconds until it may post again.
+     *
+     * @param ex a RateLimitExceededException object
+     * @return a ResponseEntity object containing the detail message String of this exception
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<String> handleRateLimitExceeded(RateLimitExceededException ex) {
+        count(ex);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
+
+    private void count(Exception ex) {
+        meterRegistry.counter(EXCEPTION_COUNTER, "exception", ex.getClass().getSimpleName()).increment();
+    }
+
 }
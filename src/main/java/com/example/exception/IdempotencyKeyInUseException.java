@@ -0,0 +1,7 @@
+package com.example.exception;
+
+public class IdempotencyKeyInUseException extends RuntimeException {
+    public IdempotencyKeyInUseException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.exception;
+
+public class InvalidMessageBatchException extends RuntimeException {
+    public InvalidMessageBatchException(String message) {
+        super(message);
+    }
+}
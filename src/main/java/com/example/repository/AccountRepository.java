@@ -3,13 +3,68 @@ package com.example.repository;
 import org.springframework.stereotype.Repository;
 import com.example.entity.Account;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Integer> {
 
     Optional<Account> findByUsername(String username);
-    Optional<Account> findByUsernameAndPassword(String username, String password);
+
+    boolean existsByAccountId(Integer accountId);
+
+    boolean existsByUsername(String username);
+
+    @Query("select a.accountId from Account a where a.accountId in :accountIds")
+    Set<Integer> findExistingAccountIds(@Param("accountIds") Collection<Integer> accountIds);
+
+    /**
+     * Makes followerId follow followeeId unless it already does.
+     *
+     * @return 1 if the follow was added, or 0 if it already existed
+     */
+    @Modifying
+    @Query(value = "insert into follow (followerId, followeeId) select :followerId, :followeeId where not exists " +
+            "(select 1 from follow where followerId = :followerId and followeeId = :followeeId)", nativeQuery = true)
+    int insertFollow(@Param("followerId") Integer followerId, @Param("followeeId") Integer followeeId);
+
+    /**
+     * @return 1 if the follow was removed, or 0 if there was none
+     */
+    @Modifying
+    @Query(value = "delete from follow where followerId = :followerId and followeeId = :followeeId", nativeQuery = true)
+    int deleteFollow(@Param("followerId") Integer followerId, @Param("followeeId") Integer followeeId);
+
+    /**
+     * Adds delta to the followerCount of an Account, and marks it as fanned out on read once the count reaches the
+     * threshold. The mark is never cleared.
+     */
+    @Modifying
+    @Query(value = "update account set followerCount = followerCount + :delta, " +
+            "fanOutOnRead = fanOutOnRead or followerCount + :delta >= :threshold where accountId = :accountId",
+            nativeQuery = true)
+    int addFollowers(@Param("accountId") Integer accountId, @Param("delta") int delta,
+                     @Param("threshold") int threshold);
+
+    @Query(value = "select followerCount from account where accountId = :accountId", nativeQuery = true)
+    Optional<Integer> findFollowerCount(@Param("accountId") Integer accountId);
+
+    @Query(value = "select accountId from account where fanOutOnRead", nativeQuery = true)
+    Set<Integer> findFanOutOnReadAccountIds();
+
+    /**
+     * Returns those of followeeIds that followerId follows, with one primary key lookup per candidate.
+     */
+    @Query(value = "select followeeId from follow where followerId = :followerId and followeeId in :followeeIds",
+            nativeQuery = true)
+    List<Integer> findFollowedAmong(@Param("followerId") Integer followerId,
+                                    @Param("followeeIds") Collection<Integer> followeeIds);
 
 }
@@ -1,14 +1,193 @@
 package com.example.repository;
 
 import com.example.entity.Message;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Integer> {
 
-    List<Message> findByPostedBy(Integer postedBy);
-    
+    Slice<Message> findByPostedByOrderByTimePostedEpochDescMessageIdDesc(Integer postedBy, Pageable pageable);
+
+    /**
+     * Returns the Messages of postedBy after the cursor (beforeTime, beforeId) in newest-first order. Messages without
+     * a timePostedEpoch sort last, so they always follow the cursor.
+     */
+    @Query("select m from Message m where m.postedBy = :postedBy and (m.timePostedEpoch < :beforeTime " +
+            "or (m.timePostedEpoch = :beforeTime and m.messageId < :beforeId) or m.timePostedEpoch is null) " +
+            "order by m.timePostedEpoch desc, m.messageId desc")
+    Slice<Message> findByPostedByBefore(@Param("postedBy") Integer postedBy, @Param("beforeTime") Long beforeTime,
+                                        @Param("beforeId") Integer beforeId, Pageable pageable);
+
+    /**
+     * Returns the Messages of postedBy without a timePostedEpoch after the cursor beforeId, which is one of them.
+     */
+    @Query("select m from Message m where m.postedBy = :postedBy and m.timePostedEpoch is null " +
+            "and m.messageId < :beforeId order by m.messageId desc")
+    Slice<Message> findByPostedByUntimedBefore(@Param("postedBy") Integer postedBy, @Param("beforeId") Integer beforeId,
+                                               Pageable pageable);
+
+    Slice<Message> findByMessageIdGreaterThanOrderByMessageIdAsc(Integer messageId, Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<Message> streamAllByOrderByMessageIdAsc();
+
+    /**
+     * Updates the messageText of a Message and returns the Message as it was before the update, in a single statement,
+     * using H2's data change delta table (OLD TABLE).
+     */
+    @Transactional
+    @Query(value = "select * from old table (update message set messageText = :messageText " +
+            "where messageId = :messageId)", nativeQuery = true)
+    Optional<Message> updateMessageTextById(@Param("messageId") Integer messageId,
+                                            @Param("messageText") String messageText);
+
+    /**
+     * Deletes a Message and returns it as it was before the delete, in a single statement, using H2's data change delta
+     * table (OLD TABLE). The Message's home timeline entries are removed with it by ON DELETE CASCADE; its tags are
+     * removed by deleteTags.
+     */
+    @Transactional
+    @Query(value = "select * from old table (delete from message where messageId = :messageId)", nativeQuery = true)
+    Optional<Message> deleteByMessageId(@Param("messageId") Integer messageId);
+
+    /**
+     * Adds a Message to the home timeline of every follower of its author that does not have it yet, in one
+     * INSERT ... SELECT over the (followeeId, followerId) index.
+     *
+     * @return the number of home timelines the Message was added to
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into timeline (accountId, messageId, postedBy, timePostedEpoch) " +
+            "select f.followerId, m.messageId, m.postedBy, m.timePostedEpoch from message m " +
+            "join follow f on f.followeeId = m.postedBy where m.messageId = :messageId and not exists " +
+            "(select 1 from timeline t where t.accountId = f.followerId and t.messageId = m.messageId)", nativeQuery = true)
+    int fanOut(@Param("messageId") Integer messageId);
+
+    /**
+     * Adds the newest Messages of postedBy to the home timeline of accountId, after accountId starts following it.
+     * Messages already in the timeline, such as one fanned out while the follow was being added, are skipped.
+     */
+    @Modifying
+    @Query(value = "insert into timeline (accountId, messageId, postedBy, timePostedEpoch) " +
+            "select :accountId, n.messageId, n.postedBy, n.timePostedEpoch from (select m.messageId, m.postedBy, " +
+            "m.timePostedEpoch from message m where m.postedBy = :postedBy " +
+            "order by m.timePostedEpoch desc, m.messageId desc fetch first :limit rows only) n where not exists " +
+            "(select 1 from timeline t where t.accountId = :accountId and t.messageId = n.messageId)", nativeQuery = true)
+    int backfillTimeline(@Param("accountId") Integer accountId, @Param("postedBy") Integer postedBy,
+                         @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "delete from timeline where accountId = :accountId and postedBy = :postedBy", nativeQuery = true)
+    int removeFromTimeline(@Param("accountId") Integer accountId, @Param("postedBy") Integer postedBy);
+
+    /**
+     * Returns the newest Messages of the home timeline of accountId. The leading accountId in the ORDER BY lets H2 read
+     * the (accountId, timePostedEpoch, messageId) index in order and stop after limit rows.
+     */
+    @Query(value = "select m.* from timeline t join message m on m.messageId = t.messageId where t.accountId = :accountId " +
+            "order by t.accountId, t.timePostedEpoch desc, t.messageId desc fetch first :limit rows only",
+            nativeQuery = true)
+    List<Message> findHomeTimeline(@Param("accountId") Integer accountId, @Param("limit") int limit);
+
+    @Query(value = "select m.* from timeline t join message m on m.messageId = t.messageId where t.accountId = :accountId " +
+            "and (t.timePostedEpoch < :beforeTime or (t.timePostedEpoch = :beforeTime and t.messageId < :beforeId) " +
+            "or t.timePostedEpoch is null) " +
+            "order by t.accountId, t.timePostedEpoch desc, t.messageId desc fetch first :limit rows only",
+            nativeQuery = true)
+    List<Message> findHomeTimelineBefore(@Param("accountId") Integer accountId, @Param("beforeTime") Long beforeTime,
+                                         @Param("beforeId") Integer beforeId, @Param("limit") int limit);
+
+    @Query(value = "select m.* from timeline t join message m on m.messageId = t.messageId where t.accountId = :accountId " +
+            "and t.timePostedEpoch is null and t.messageId < :beforeId " +
+            "order by t.accountId, t.timePostedEpoch desc, t.messageId desc fetch first :limit rows only",
+            nativeQuery = true)
+    List<Message> findHomeTimelineUntimedBefore(@Param("accountId") Integer accountId,
+                                                @Param("beforeId") Integer beforeId, @Param("limit") int limit);
+
+    /**
+     * Records a hashtag or mention of a Message, copying its timePostedEpoch so per-tag timelines need no join to sort.
+     *
+     * @return 1 if the tag was recorded, or 0 if the Message already had it
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into message_tag (tag, messageId, timePostedEpoch) " +
+            "select :tag, m.messageId, m.timePostedEpoch from message m where m.messageId = :messageId and not exists " +
+            "(select 1 from message_tag t where t.tag = :tag and t.messageId = m.messageId)", nativeQuery = true)
+    int insertTag(@Param("tag") String tag, @Param("messageId") Integer messageId);
+
+    /**
+     * @return 1 if the tag was removed, or 0 if the Message did not have it
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "delete from message_tag where messageId = :messageId and tag = :tag", nativeQuery = true)
+    int deleteTag(@Param("tag") String tag, @Param("messageId") Integer messageId);
+
+    /**
+     * Removes every hashtag and mention of a Message and returns the ones removed, in a single statement, using H2's
+     * data change delta table (OLD TABLE).
+     *
+     * @return the tags removed, none of which a concurrent deleteTag also removed
+     */
+    @Transactional
+    @Query(value = "select tag from old table (delete from message_tag where messageId = :messageId)",
+            nativeQuery = true)
+    List<String> deleteTags(@Param("messageId") Integer messageId);
+
+    /**
+     * Returns the newest Messages with a hashtag or mention. The leading tag in the ORDER BY lets H2 read the
+     * (tag, timePostedEpoch, messageId) index in order and stop after limit rows.
+     */
+    @Query(value = "select m.* from message_tag t join message m on m.messageId = t.messageId where t.tag = :tag " +
+            "order by t.tag, t.timePostedEpoch desc, t.messageId desc fetch first :limit rows only", nativeQuery = true)
+    List<Message> findByTag(@Param("tag") String tag, @Param("limit") int limit);
+
+    @Query(value = "select m.* from message_tag t join message m on m.messageId = t.messageId where t.tag = :tag " +
+            "and (t.timePostedEpoch < :beforeTime or (t.timePostedEpoch = :beforeTime and t.messageId < :beforeId) " +
+            "or t.timePostedEpoch is null) " +
+            "order by t.tag, t.timePostedEpoch desc, t.messageId desc fetch first :limit rows only", nativeQuery = true)
+    List<Message> findByTagBefore(@Param("tag") String tag, @Param("beforeTime") Long beforeTime,
+                                  @Param("beforeId") Integer beforeId, @Param("limit") int limit);
+
+    @Query(value = "select m.* from message_tag t join message m on m.messageId = t.messageId where t.tag = :tag " +
+            "and t.timePostedEpoch is null and t.messageId < :beforeId " +
+            "order by t.tag, t.timePostedEpoch desc, t.messageId desc fetch first :limit rows only", nativeQuery = true)
+    List<Message> findByTagUntimedBefore(@Param("tag") String tag, @Param("beforeId") Integer beforeId,
+                                         @Param("limit") int limit);
+
+    /**
+     * Records that an Account likes a Message, unless it already does or the Message does not exist.
+     *
+     * @return 1 if the like was recorded, otherwise 0
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into message_like (messageId, accountId) select m.messageId, :accountId from message m " +
+            "where m.messageId = :messageId and not exists (select 1 from message_like l " +
+            "where l.messageId = :messageId and l.accountId = :accountId)", nativeQuery = true)
+    int insertLike(@Param("accountId") Integer accountId, @Param("messageId") Integer messageId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from message_like where messageId = :messageId and accountId = :accountId", nativeQuery = true)
+    int deleteLike(@Param("accountId") Integer accountId, @Param("messageId") Integer messageId);
+
 }
@@ -0,0 +1,31 @@
+package com.example.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking account queries for the reactive endpoints, issued as explicit SQL through R2DBC.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAccountRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveAccountRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Boolean> existsByAccountId(Integer accountId) {
+        if (accountId == null)
+            return Mono.just(false);
+
+        return databaseClient.sql("select 1 from account where accountId = :accountId")
+                .bind("accountId", accountId)
+                .map(row -> true)
+                .first()
+                .defaultIfEmpty(false);
+    }
+}
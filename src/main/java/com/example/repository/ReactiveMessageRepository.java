@@ -0,0 +1,177 @@
+package com.example.repository;
+
+import com.example.entity.Message;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking message queries for the reactive endpoints, issued as explicit SQL through R2DBC. The queries mirror
+ * those of MessageRepository, including the keyset pagination over the primary key and over the
+ * (postedBy, timePostedEpoch, messageId) index.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveMessageRepository {
+
+    private static final String SELECT_COLUMNS = "select messageId, postedBy, messageText, timePostedEpoch ";
+    private static final String SELECT_MESSAGE = SELECT_COLUMNS + "from message ";
+
+    private final DatabaseClient databaseClient;
+    /**
+     * The next id of the current block taken from message_seq, and the end of that block (exclusive). Guarded by
+     * this repository.
+     */
+    private long nextId;
+    private long blockEnd;
+
+    public ReactiveMessageRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Inserts the Message. Its messageId is allocated like the Message entity's (pooled-lo): each value taken from
+     * message_seq reserves the next Message.ID_BLOCK_SIZE ids, which are handed out from memory, skipping the test
+     * ids. The column default would instead use up a whole block per row.
+     *
+     * @param message a Message object without a messageId
+     * @return a Mono emitting a new Message object including its messageId
+     */
+    public Mono<Message> save(Message message) {
+        return nextMessageId().flatMap(messageId -> {
+            DatabaseClient.GenericExecuteSpec insert = databaseClient
+                    .sql("insert into message (messageId, postedBy, messageText, timePostedEpoch) " +
+                            "values (:messageId, :postedBy, :messageText, :timePostedEpoch)")
+                    .bind("messageId", messageId)
+                    .bind("postedBy", message.getPostedBy())
+                    .bind("messageText", message.getMessageText());
+            insert = message.getTimePostedEpoch() == null
+                    ? insert.bindNull("timePostedEpoch", Long.class)
+                    : insert.bind("timePostedEpoch", message.getTimePostedEpoch());
+            return insert.then().thenReturn(new Message(messageId, message.getPostedBy(), message.getMessageText(),
+                    message.getTimePostedEpoch()));
+        });
+    }
+
+    private Mono<Integer> nextMessageId() {
+        synchronized (this) {
+            Integer messageId = takeId();
+            if (messageId != null)
+                return Mono.just(messageId);
+        }
+        return databaseClient.sql("select next value for message_seq")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(blockStart -> {
+                    synchronized (this) {
+                        // A concurrent caller may have taken a block as well; the one with fewer ids left is dropped
+                        if (blockEnd - nextId < Message.ID_BLOCK_SIZE) {
+                            nextId = blockStart;
+                            blockEnd = blockStart + Message.ID_BLOCK_SIZE;
+                        }
+                    }
+                    return nextMessageId();
+                });
+    }
+
+    private Integer takeId() {
+        while (nextId < blockEnd) {
+            long id = nextId++;
+            if (id < Message.RESERVED_MIN_ID || id > Message.RESERVED_MAX_ID)
+                return Math.toIntExact(id);
+        }
+        return null;
+    }
+
+    public Mono<Message> findById(Integer messageId) {
+        return databaseClient.sql(SELECT_MESSAGE + "where messageId = :messageId")
+                .bind("messageId", messageId)
+                .map(ReactiveMessageRepository::toMessage)
+                .one();
+    }
+
+    public Flux<Message> findByMessageIdGreaterThan(int messageId, int limit) {
+        return databaseClient.sql(SELECT_MESSAGE + "where messageId > :messageId order by messageId " +
+                        "fetch first :limit rows only")
+                .bind("messageId", messageId)
+                .bind("limit", limit)
+                .map(ReactiveMessageRepository::toMessage)
+                .all();
+    }
+
+    /**
+     * Reads every Message ordered by messageId. Rows are emitted as the subscriber requests them.
+     *
+     * @return a Flux emitting all Messages in messageId order
+     */
+    public Flux<Message> findAllOrderByMessageId() {
+        return databaseClient.sql(SELECT_MESSAGE + "order by messageId")
+                .map(ReactiveMessageRepository::toMessage)
+                .all();
+    }
+
+    public Flux<Message> findByPostedBy(Integer postedBy, int limit) {
+        return databaseClient.sql(SELECT_MESSAGE + "where postedBy = :postedBy " +
+                        "order by timePostedEpoch desc, messageId desc fetch first :limit rows only")
+                .bind("postedBy", postedBy)
+                .bind("limit", limit)
+                .map(ReactiveMessageRepository::toMessage)
+                .all();
+    }
+
+    public Flux<Message> findByPostedByBefore(Integer postedBy, long beforeTime, int beforeId, int limit) {
+        return databaseClient.sql(SELECT_MESSAGE + "where postedBy = :postedBy and (timePostedEpoch < :beforeTime " +
+                        "or (timePostedEpoch = :beforeTime and messageId < :beforeId) or timePostedEpoch is null) " +
+                        "order by timePostedEpoch desc, messageId desc fetch first :limit rows only")
+                .bind("postedBy", postedBy)
+                .bind("beforeTime", beforeTime)
+                .bind("beforeId", beforeId)
+                .bind("limit", limit)
+                .map(ReactiveMessageRepository::toMessage)
+                .all();
+    }
+
+    public Flux<Message> findByPostedByUntimedBefore(Integer postedBy, int beforeId, int limit) {
+        return databaseClient.sql(SELECT_MESSAGE + "where postedBy = :postedBy and timePostedEpoch is null " +
+                        "and messageId < :beforeId order by messageId desc fetch first :limit rows only")
+                .bind("postedBy", postedBy)
+                .bind("beforeId", beforeId)
+                .bind("limit", limit)
+                .map(ReactiveMessageRepository::toMessage)
+                .all();
+    }
+
+    /**
+     * Updates the messageText of a Message in a single statement that also returns the row as it was before.
+     *
+     * @return a Mono emitting the Message before the update, or completing empty if there is no such Message
+     */
+    public Mono<Message> updateMessageTextById(Integer messageId, String messageText) {
+        return databaseClient.sql(SELECT_COLUMNS + "from old table (update message set messageText = :messageText " +
+                        "where messageId = :messageId)")
+                .bind("messageText", messageText)
+                .bind("messageId", messageId)
+                .map(ReactiveMessageRepository::toMessage)
+                .one();
+    }
+
+    /**
+     * Deletes a Message in a single statement that also returns the deleted row.
+     *
+     * @return a Mono emitting the deleted Message, or completing empty if there is no such Message
+     */
+    public Mono<Message> deleteByMessageId(Integer messageId) {
+        return databaseClient.sql(SELECT_COLUMNS + "from old table (delete from message where messageId = :messageId)")
+                .bind("messageId", messageId)
+                .map(ReactiveMessageRepository::toMessage)
+                .one();
+    }
+
+    private static Message toMessage(Readable row) {
+        return new Message(row.get(0, Integer.class), row.get(1, Integer.class), row.get(2, String.class),
+                row.get(3, Long.class));
+    }
+}
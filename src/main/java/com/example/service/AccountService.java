@@ -1,59 +1,255 @@
 package com.example.service;
 
+import com.example.config.MetricsConfig;
 import com.example.entity.Account;
 import com.example.exception.DuplicateUsernameException;
 import com.example.exception.InvalidUsernameOrPasswordException;
 import com.example.repository.AccountRepository;
+import com.example.util.BloomFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
 import javax.security.sasl.AuthenticationException;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class AccountService {
 
     private final AccountRepository accountRepository;
+    /**
+     * The ids of Accounts known to exist, up to app.accounts.known-ids-cache-size of the most used. Accounts are never
+     * deleted, so membership is definitive and lets existence checks for active posters skip the database entirely.
+     */
+    private final Cache<Integer, Boolean> knownAccountIds;
+    /**
+     * The usernames known to be taken, filled with every existing username at startup. A negative answer lets a
+     * registration go straight to its INSERT.
+     */
+    private final BloomFilter takenUsernames;
+    private final JdbcTemplate jdbcTemplate;
+    private final SessionTokenStore sessionTokenStore;
+    private final PasswordHasher passwordHasher;
+    /**
+     * Inserts registered Accounts once their password is hashed, so that the password pool never waits on JDBC.
+     */
+    private final ExecutorService accountWriter;
 
     @Autowired
-    public AccountService(AccountRepository accountRepository) {
+    public AccountService(AccountRepository accountRepository, JdbcTemplate jdbcTemplate,
+                          SessionTokenStore sessionTokenStore, PasswordHasher passwordHasher,
+                          @Value("${app.accounts.username-filter.expected-insertions:1000000}") long expectedUsernames,
+                          @Value("${app.accounts.username-filter.false-positive-probability:0.01}") double falsePositiveProbability,
+                          @Value("${app.accounts.write-threads:4}") int writeThreads,
+                          @Value("${app.accounts.known-ids-cache-size:100000}") long knownIdsCacheSize) {
         this.accountRepository = accountRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sessionTokenStore = sessionTokenStore;
+        this.passwordHasher = passwordHasher;
+        this.takenUsernames = new BloomFilter(expectedUsernames, falsePositiveProbability);
+        this.knownAccountIds = Caffeine.newBuilder()
+                .maximumSize(knownIdsCacheSize)
+                .build();
+        this.accountWriter = Executors.newFixedThreadPool(writeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "account-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds every existing username to the filter, read in one streamed query, so that registering a taken username is
+     * answered by the existence query rather than by a failed INSERT.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadUsernames() {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("select username from account");
+            statement.setFetchSize(1000);
+            return statement;
+        }, resultSet -> {
+            takenUsernames.put(resultSet.getString(1));
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        accountWriter.shutdownNow();
     }
 
     /**
      * Registers an Account if and only if the username is not blank, the password is at least 4 character long, and an
      * Account with that username does not already exist. If all these conditions are met, the Account is persisted to
-     * the database.
+     * the database with a salted hash of its password. The password is hashed on the password hashing pool, and the
+     * Account is then inserted on the app.accounts.write-threads pool, so neither the calling thread nor a hashing
+     * thread is held by the other's work.
+     *
+     * The unique constraint on username is the authority on duplicates, so a new username costs a single INSERT and
+     * two concurrent registrations of the same username cannot both succeed. Usernames the in-memory filter has seen,
+     * which includes every username existing at startup, are first confirmed with an existence query, so only such a
+     * race ends in a failed INSERT.
      *
      * @param account an Account object without an accountId
-     * @return the persisted Account object, including its accountId
+     * @return a CompletableFuture completing with the persisted Account object, including its accountId, carrying the
+     * password as submitted; or completing exceptionally with a DuplicateUsernameException if an Account with the
+     * given username was registered meanwhile
      * @throws InvalidUsernameOrPasswordException if username is blank or password is less than 4 characters long
      * @throws DuplicateUsernameException if an Account with the given username already exists
+     * @throws java.util.concurrent.RejectedExecutionException if the password hashing pool is saturated
      */
-    public Account register(Account account) {
+    public CompletableFuture<Account> register(Account account) {
 
         if (account.getUsername().isEmpty() || account.getPassword().length() < 4)
             throw new InvalidUsernameOrPasswordException("Username or password is invalid. Username must not be empty and password must be at least 4 characters.");
 
-        if (accountRepository.findByUsername(account.getUsername()).isPresent())
-            throw new DuplicateUsernameException(account.getUsername() + " is already taken. Please choose a different username.");
+        if (takenUsernames.mightContain(account.getUsername()) && accountRepository.existsByUsername(account.getUsername()))
+            throw duplicateUsername(account.getUsername());
 
-        return accountRepository.save(account);
+        String rawPassword = account.getPassword();
+        return passwordHasher.hash(rawPassword)
+                .thenApplyAsync(hash -> {
+                    account.setPassword(hash);
+                    Account registeredAccount;
+                    try {
+                        registeredAccount = accountRepository.saveAndFlush(account);
+                    } catch (DataIntegrityViolationException e) {
+                        takenUsernames.put(account.getUsername());
+                        throw new CompletionException(duplicateUsername(account.getUsername()));
+                    }
+                    takenUsernames.put(registeredAccount.getUsername());
+                    knownAccountIds.put(registeredAccount.getAccountId(), Boolean.TRUE);
+                    return new Account(registeredAccount.getAccountId(), registeredAccount.getUsername(), rawPassword);
+                }, accountWriter);
     }
 
     /**
-     * Verifies that the username and password provided match a real Account existing on the database.
+     * Verifies that the username and password provided match a real Account existing on the database. The Account is
+     * looked up by username and the password is checked against its stored hash on the password hashing pool, so the
+     * calling thread is not held while the KDF runs. An unknown username is checked against a dummy hash, so it takes
+     * as long as a wrong password and the response time does not reveal which usernames exist.
      *
      * @param account an Account object without an accountId
-     * @return the persisted Account object, including its accountId
-     * @throws AuthenticationException if username and password do not match an existing Account
+     * @return a CompletableFuture completing with the persisted Account object, including its accountId, carrying the
+     * password as submitted; or completing exceptionally with an AuthenticationException if username and password do
+     * not match an existing Account
+     * @throws java.util.concurrent.RejectedExecutionException if the password hashing pool is saturated
+     */
+    public CompletableFuture<Account> login(Account account) {
+        Optional<Account> persistedAccount = accountRepository.findByUsername(account.getUsername());
+        if (persistedAccount.isEmpty())
+            return passwordHasher.mismatch(account.getPassword())
+                    .thenApply(matches -> {
+                        throw new CompletionException(invalidCredentials());
+                    });
+
+        Account storedAccount = persistedAccount.get();
+        return passwordHasher.matches(account.getPassword(), storedAccount.getPassword())
+                .thenApply(matches -> {
+                    if (!matches)
+                        throw new CompletionException(invalidCredentials());
+
+                    return new Account(storedAccount.getAccountId(), storedAccount.getUsername(), account.getPassword());
+                });
+    }
+
+    /**
+     * Issues an opaque session token for an authenticated Account. The token can later be presented to authenticate
+     * in place of the username and password.
+     *
+     * @param account an Account returned by login
+     * @return the session token
      */
-    public Account login(Account account) throws AuthenticationException {
-        Optional<Account> authenticatedAccount = accountRepository.findByUsernameAndPassword(account.getUsername(), account.getPassword());
-        if (authenticatedAccount.isEmpty())
-            throw new AuthenticationException("Credentials could not be authenticated. Check username and password and try again.");
+    public String issueSessionToken(Account account) {
+        return sessionTokenStore.issue(account);
+    }
+
+    /**
+     * Verifies a session token issued by issueSessionToken. The check is made entirely in memory.
+     *
+     * @param token a session token
+     * @return the Account the token was issued for, without its password
+     * @throws AuthenticationException if the token is unknown or has expired
+     */
+    public Account authenticate(String token) throws AuthenticationException {
+        Account account = sessionTokenStore.resolve(token);
+        if (account == null)
+            throw new AuthenticationException("Session token is invalid or has expired. Log in with username and password.");
+
+        return account;
+    }
+
+    /**
+     * Checks whether an Account with the given accountId exists. Ids already known to exist are answered from memory;
+     * otherwise a single existence query is run without loading the Account, and a positive answer is remembered.
+     *
+     * @param accountId an Integer denoting a potential accountId of a persisted Account
+     * @return true if the Account exists, false otherwise (including when accountId is null)
+     */
+    public boolean accountExists(Integer accountId) {
+        if (accountId == null)
+            return false;
+        if (knownAccountIds.getIfPresent(accountId) != null)
+            return true;
+        if (!accountRepository.existsByAccountId(accountId))
+            return false;
+
+        knownAccountIds.put(accountId, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * Returns the subset of the given accountIds that refer to existing Accounts. Ids not already known to exist are
+     * checked together with a single query, and the ones found are remembered.
+     *
+     * @param accountIds a Collection of potential accountIds of persisted Accounts
+     * @return a Set<Integer> object containing the accountIds that exist
+     */
+    public Set<Integer> findExistingAccountIds(Collection<Integer> accountIds) {
+        Set<Integer> existingAccountIds = new HashSet<>();
+        List<Integer> unknownAccountIds = new ArrayList<>();
+        for (Integer accountId : accountIds) {
+            if (accountId == null)
+                continue;
+            if (knownAccountIds.getIfPresent(accountId) != null)
+                existingAccountIds.add(accountId);
+            else
+                unknownAccountIds.add(accountId);
+        }
+
+        if (!unknownAccountIds.isEmpty()) {
+            Set<Integer> foundAccountIds = accountRepository.findExistingAccountIds(unknownAccountIds);
+            for (Integer accountId : foundAccountIds)
+                knownAccountIds.put(accountId, Boolean.TRUE);
+            existingAccountIds.addAll(foundAccountIds);
+        }
+        return existingAccountIds;
+    }
+
+    private static AuthenticationException invalidCredentials() {
+        return new AuthenticationException("Credentials could not be authenticated. Check username and password and try again.");
+    }
 
-        return authenticatedAccount.get();
+    private static DuplicateUsernameException duplicateUsername(String username) {
+        return new DuplicateUsernameException(username + " is already taken. Please choose a different username.");
     }
 
 }
@@ -0,0 +1,200 @@
+package com.example.service;
+
+import com.example.exception.IdempotencyKeyInUseException;
+import com.example.exception.IdempotencyKeyMismatchException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, expiring in-memory store of results keyed by client-supplied idempotency keys. The first request with a
+ * key runs its action and records the result; a retry with the same key gets the recorded result without running the
+ * action again, and a concurrent duplicate waits up to app.idempotency.wait-timeout for the first request to finish
+ * instead of racing it. A failed action is not recorded, so a later retry runs it again.
+ *
+ * Keys belong to an owner, such as the Account posting, so one client cannot collide with or read another client's
+ * key. Each recorded result also keeps a keyed digest of the request that produced it, and a request reusing the key
+ * with a different body is rejected rather than given the earlier result.
+ */
+@Component
+public class IdempotencyStore {
+
+    private final Cache<StoreKey, Entry> results;
+    private final long waitTimeoutMillis;
+    private final SecretKeySpec fingerprintKey;
+
+    public IdempotencyStore(@Value("${app.idempotency.ttl:1h}") Duration ttl,
+                            @Value("${app.idempotency.maximum-size:100000}") long maximumSize,
+                            @Value("${app.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .build();
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.fingerprintKey = new SecretKeySpec(key, "HmacSHA256");
+    }
+
+    /**
+     * Runs the action at most once per scope, owner and key while its result is retained.
+     *
+     * @param scope the operation the key belongs to, so the same key can be used for different operations
+     * @param owner the client the key belongs to, such as the postedBy of a Message
+     * @param key the client-supplied idempotency key, or null to simply run the action
+     * @param request the values of the request that must be the same on a retry
+     * @param action the operation to perform
+     * @param <T> the result type of the action
+     * @return the result of the action, either freshly computed or recorded by an earlier request with the same key
+     * @throws IdempotencyKeyMismatchException if the key was used for a request with different values
+     * @throws IdempotencyKeyInUseException if the request first made with the key did not finish in time
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String scope, Object owner, String key, List<?> request, Supplier<T> action) {
+        if (key == null)
+            return action.get();
+
+        StoreKey storeKey = new StoreKey(scope, owner, key);
+        Entry entry = new Entry(fingerprint(request), new CompletableFuture<>());
+        Entry existing = results.asMap().putIfAbsent(storeKey, entry);
+        if (existing != null)
+            return (T) await(existing, entry.fingerprint());
+
+        try {
+            T value = action.get();
+            entry.result().complete(value);
+            return value;
+        } catch (Throwable e) {
+            results.asMap().remove(storeKey, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Runs an asynchronous action at most once per scope, owner and key while its result is retained, as execute
+     * does. A retry or concurrent duplicate gets a future of the first request's result rather than blocking, which
+     * fails with an IdempotencyKeyInUseException if the first request does not finish in time.
+     *
+     * @param scope the operation the key belongs to, so the same key can be used for different operations
+     * @param owner the client the key belongs to, such as the username being registered
+     * @param key the client-supplied idempotency key, or null to simply run the action
+     * @param request the values of the request that must be the same on a retry
+     * @param action the operation to start
+     * @param <T> the result type of the action
+     * @return a CompletableFuture completing with the result of the action, either freshly computed or recorded by an
+     * earlier request with the same key
+     * @throws IdempotencyKeyMismatchException if the key was used for a request with different values
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(String scope, Object owner, String key, List<?> request,
+                                                 Supplier<CompletableFuture<T>> action) {
+        if (key == null)
+            return action.get();
+
+        StoreKey storeKey = new StoreKey(scope, owner, key);
+        Entry entry = new Entry(fingerprint(request), new CompletableFuture<>());
+        Entry existing = results.asMap().putIfAbsent(storeKey, entry);
+        if (existing != null) {
+            checkFingerprint(existing, entry.fingerprint());
+            CompletableFuture<T> waiter = new CompletableFuture<>();
+            existing.result().whenComplete((value, failure) -> {
+                if (failure == null)
+                    waiter.complete((T) value);
+                else
+                    waiter.completeExceptionally(failure);
+            });
+            CompletableFuture.delayedExecutor(waitTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .execute(() -> waiter.completeExceptionally(inUse()));
+            return waiter;
+        }
+
+        CompletableFuture<T> started;
+        try {
+            started = action.get();
+        } catch (Throwable e) {
+            results.asMap().remove(storeKey, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+        return started.whenComplete((value, failure) -> {
+            if (failure == null) {
+                entry.result().complete(value);
+            } else {
+                results.asMap().remove(storeKey, entry);
+                entry.result().completeExceptionally(failure);
+            }
+        });
+    }
+
+    private Object await(Entry existing, byte[] fingerprint) {
+        checkFingerprint(existing, fingerprint);
+        try {
+            return existing.result().get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw inUse();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inUse();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new CompletionException(cause);
+        }
+    }
+
+    private static void checkFingerprint(Entry existing, byte[] fingerprint) {
+        if (!MessageDigest.isEqual(existing.fingerprint(), fingerprint))
+            throw new IdempotencyKeyMismatchException("Idempotency-Key was already used for a different request. Use a new key for a new request.");
+    }
+
+    private static IdempotencyKeyInUseException inUse() {
+        return new IdempotencyKeyInUseException("A request with this Idempotency-Key is still in progress. Please retry later.");
+    }
+
+    /**
+     * Returns a keyed digest of the request values. Each value is prefixed with its length, so that different values
+     * cannot run together into the same input.
+     */
+    private byte[] fingerprint(List<?> request) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(fingerprintKey);
+            for (Object value : request) {
+                byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+                mac.update((value == null ? "-" : bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+                if (value != null)
+                    mac.update(bytes);
+            }
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private record StoreKey(String scope, Object owner, String key) {
+    }
+
+    private record Entry(byte[] fingerprint, CompletableFuture<Object> result) {
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Counts likes in memory and adds them to the message_like_count table in the background, so that liking a popular
+ * Message never waits on its counter row.
+ *
+ * Each Message being liked has a LongAdder, which spreads concurrent increments over per-thread cells instead of
+ * contending on one value. Every app.likes.flush-interval a single thread reads each adder and adds its count to one of
+ * the Message's app.likes.shards counter rows, chosen at random, in one JDBC batch and transaction. Several application
+ * instances flushing the same Message thus mostly update different rows. The counts being flushed are moved from the
+ * adders to the counters' flushing fields first, and the batch is written without any lock held. Only that move, the
+ * commit and what follows it hold a write lock, which count takes for reading: a count never sees a like both in the
+ * table and in memory, or in neither. A failed flush moves the counts back to be retried. Likes never take the lock.
+ *
+ * The flushed sum of each Message counted is cached for app.likes.count-cache-ttl, and a committed flush adds to the
+ * cached sums, so that count only reads the table on a miss. The TTL bounds how late the flushes of other instances
+ * are seen.
+ *
+ * An adder not added to for a whole interval is retired: it is moved out of the map, under the write lock, and flushed
+ * a last time on the following interval. An increment from a thread that looked it up just before the move still
+ * lands in it, and count reads retired adders as well, so that increment is counted before and after its flush. A
+ * retired adder is only dropped once it is empty under the write lock, so only an increment delayed between the lookup
+ * and the add for longer than a whole interval can be lost.
+ */
+@Component
+public class LikeCounter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LikeCounter.class);
+    /**
+     * Adds a count to one counter row, doing nothing if the Message has been deleted since it was liked.
+     */
+    private static final String FLUSH_SQL = "merge into message_like_count c " +
+            "using (select messageId, cast(? as int) shard, cast(? as bigint) delta from message where messageId = ?) d " +
+            "on c.messageId = d.messageId and c.shard = d.shard " +
+            "when matched then update set likes = c.likes + d.delta " +
+            "when not matched then insert (messageId, shard, likes) values (d.messageId, d.shard, d.delta)";
+    private static final String SUM_SQL =
+            "select coalesce(sum(likes), 0) from message_like_count where messageId = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final int shards;
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Counters retired on the previous flush, to be flushed a last time. Only changed under the write lock.
+     */
+    private final Map<Integer, Counter> retired = new ConcurrentHashMap<>();
+    /**
+     * The sum of the counter rows of each Message, loaded under the read lock and only changed under the write lock.
+     */
+    private final Cache<Integer, Long> flushedSums;
+    private final ScheduledExecutorService flusher;
+
+    public LikeCounter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                       @Value("${app.likes.flush-interval:1s}") Duration flushInterval,
+                       @Value("${app.likes.shards:8}") int shards,
+                       @Value("${app.likes.count-cache-size:10000}") long countCacheSize,
+                       @Value("${app.likes.count-cache-ttl:5s}") Duration countCacheTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.shards = shards;
+        this.flushedSums = Caffeine.newBuilder()
+                .maximumSize(countCacheSize)
+                .expireAfterWrite(countCacheTtl)
+                .build();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-counter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds to the like count of a Message, without blocking.
+     *
+     * @param messageId the messageId of the liked Message
+     * @param delta 1 for a like, -1 for an unlike
+     */
+    public void add(Integer messageId, long delta) {
+        Counter counter = counters.get(messageId);
+        if (counter == null)
+            counter = counters.computeIfAbsent(messageId, Counter::new);
+        counter.pending.add(delta);
+        // Only written when it changes, so that concurrent likes do not contend on it
+        if (!counter.active)
+            counter.active = true;
+    }
+
+    /**
+     * Returns the number of likes of a Message: the cached sum of its counter rows, read by primary key prefix on a
+     * miss, plus the likes and unlikes not yet flushed or being flushed, including those in a retired counter.
+     *
+     * @param messageId the messageId of a Message
+     * @return the number of likes, or 0 if there is no such Message
+     */
+    public long count(Integer messageId) {
+        lock.readLock().lock();
+        try {
+            long flushed = flushedSums.get(messageId, id -> jdbcTemplate.queryForObject(SUM_SQL, Long.class, id));
+            return flushed + unflushed(counters.get(messageId)) + unflushed(retired.get(messageId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets the unflushed likes of a deleted Message, whose counter rows are deleted with it.
+     *
+     * @param messageId the messageId of the deleted Message
+     */
+    public void remove(Integer messageId) {
+        counters.remove(messageId);
+        retired.remove(messageId);
+        flushedSums.invalidate(messageId);
+    }
+
+    synchronized void flush() {
+        List<Pending> batch = new ArrayList<>();
+        List<Counter> previouslyRetired = new ArrayList<>(retired.values());
+        for (Counter counter : previouslyRetired) {
+            long delta = counter.pending.sum();
+            if (delta != 0)
+                batch.add(new Pending(counter, delta));
+        }
+        List<Counter> idle = new ArrayList<>();
+        for (Counter counter : counters.values()) {
+            long delta = counter.pending.sum();
+            if (delta != 0)
+                batch.add(new Pending(counter, delta));
+            if (counter.active)
+                counter.active = false;
+            else if (delta == 0)
+                idle.add(counter);
+        }
+        if (batch.isEmpty() && previouslyRetired.isEmpty() && idle.isEmpty())
+            return;
+
+        moveToFlushing(batch, 1);
+        boolean committed = false;
+        try {
+            TransactionStatus transaction = null;
+            if (!batch.isEmpty()) {
+                transaction = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+                try {
+                    jdbcTemplate.batchUpdate(FLUSH_SQL, batch, batch.size(), (statement, pending) -> {
+                        statement.setInt(1, ThreadLocalRandom.current().nextInt(shards));
+                        statement.setLong(2, pending.delta());
+                        statement.setInt(3, pending.counter().messageId);
+                    });
+                } catch (RuntimeException e) {
+                    transactionManager.rollback(transaction);
+                    throw e;
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (transaction != null)
+                    transactionManager.commit(transaction);
+                committed = true;
+                for (Pending pending : batch) {
+                    pending.counter().flushing -= pending.delta();
+                    flushedSums.asMap().computeIfPresent(pending.counter().messageId,
+                            (messageId, sum) -> sum + pending.delta());
+                }
+                for (Counter counter : previouslyRetired) {
+                    // One that was added to after it was read is flushed again on the next interval
+                    if (counter.pending.sum() == 0)
+                        retired.remove(counter.messageId, counter);
+                }
+                for (Counter counter : idle) {
+                    if (!retired.containsKey(counter.messageId) && counters.remove(counter.messageId, counter))
+                        retired.put(counter.messageId, counter);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (DataAccessException | TransactionException e) {
+            // Retired counters stay retired, and idle ones stay in the map, until a flush succeeds
+            LOGGER.warn("Could not flush the like counts of {} messages; retrying on the next flush", batch.size(), e);
+        } finally {
+            if (!committed)
+                moveToFlushing(batch, -1);
+        }
+    }
+
+    /**
+     * Moves the counts of a batch from the adders to the flushing fields, or back with a sign of -1.
+     */
+    private void moveToFlushing(List<Pending> batch, int sign) {
+        if (batch.isEmpty())
+            return;
+        lock.writeLock().lock();
+        try {
+            for (Pending pending : batch) {
+                pending.counter().pending.add(-sign * pending.delta());
+                pending.counter().flushing += sign * pending.delta();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        flush();
+    }
+
+    private static long unflushed(Counter counter) {
+        return counter == null ? 0 : counter.pending.sum() + counter.flushing;
+    }
+
+    private record Pending(Counter counter, long delta) {
+    }
+
+    private static final class Counter {
+
+        private final int messageId;
+        private final LongAdder pending = new LongAdder();
+        /**
+         * The count taken from pending by a flush that has not committed yet. Only read and written under the lock.
+         */
+        private long flushing;
+        /**
+         * Whether the counter was added to since the last flush.
+         */
+        private volatile boolean active = true;
+
+        Counter(int messageId) {
+            this.messageId = messageId;
+        }
+    }
+}
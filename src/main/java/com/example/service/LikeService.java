@@ -0,0 +1,87 @@
+package com.example.service;
+
+import com.example.config.MetricsConfig;
+import com.example.exception.ResourceNotFoundException;
+import com.example.repository.MessageRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Records likes of Messages. Each like is a (messageId, accountId) row, so an Account likes a Message at most once, and
+ * likes of different Accounts insert different rows. The totals are kept by LikeCounter rather than by updating a count
+ * column of the Message, which would make every like of a popular Message wait for the previous one.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class LikeService {
+
+    private final MessageRepository messageRepository;
+    private final AccountService accountService;
+    private final MessageService messageService;
+    private final LikeCounter likeCounter;
+
+    public LikeService(MessageRepository messageRepository, AccountService accountService,
+                       MessageService messageService, LikeCounter likeCounter) {
+        this.messageRepository = messageRepository;
+        this.accountService = accountService;
+        this.messageService = messageService;
+        this.likeCounter = likeCounter;
+    }
+
+    /**
+     * Makes an Account like a Message.
+     *
+     * @param accountId an Integer denoting the accountId of the Account that likes the Message
+     * @param messageId an Integer denoting the messageId of the liked Message
+     * @return 1 if the like was added, or null if accountId already liked messageId
+     * @throws ResourceNotFoundException if accountId does not refer to an existing Account, or messageId to an existing
+     * Message
+     */
+    public Integer like(Integer accountId, Integer messageId) {
+        if (!accountService.accountExists(accountId))
+            throw new ResourceNotFoundException(MessageService.accountNotFound(accountId));
+
+        int inserted;
+        try {
+            inserted = messageRepository.insertLike(accountId, messageId);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent like by the same Account inserted the row first
+            return null;
+        }
+        if (inserted == 0) {
+            if (messageService.getMessageById(messageId) == null)
+                throw new ResourceNotFoundException(MessageService.messageNotFound(messageId));
+            return null;
+        }
+
+        likeCounter.add(messageId, 1);
+        return 1;
+    }
+
+    /**
+     * Removes the like of an Account from a Message.
+     *
+     * @param accountId an Integer denoting the accountId of the Account that liked the Message
+     * @param messageId an Integer denoting the messageId of the liked Message
+     * @return 1 if the like was removed, or null if there was none
+     */
+    public Integer unlike(Integer accountId, Integer messageId) {
+        if (messageRepository.deleteLike(accountId, messageId) == 0)
+            return null;
+
+        likeCounter.add(messageId, -1);
+        return 1;
+    }
+
+    /**
+     * Returns the number of likes of a Message: the flushed total, cached or read from at most app.likes.shards rows,
+     * plus the likes and unlikes still counted in memory.
+     *
+     * @param messageId an Integer denoting a potential messageId of a persisted Message
+     * @return the number of likes, or 0 if there is no such Message
+     */
+    public long getLikeCount(Integer messageId) {
+        return likeCounter.count(messageId);
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.service;
+
+import com.example.entity.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pushes created, updated and deleted Messages to Server-Sent Event subscribers, optionally filtered by postedBy.
+ *
+ * Events are numbered from 1 and appended to a ring buffer holding the last app.feed.buffer-size of them. Publishing
+ * only appends and hands each interested subscriber to the dispatch pool; the publishing request never writes to a
+ * subscriber's connection. Each subscriber keeps its own position in the buffer and is drained by at most one dispatch
+ * thread at a time. A subscriber whose undelivered events are overwritten before it reads them skips ahead to the
+ * newest event and is sent a reset event first, as is a client resuming from a Last-Event-ID that is no longer
+ * buffered. Either way the client should reload with GET /messages.
+ *
+ * A drain collects the subscriber's pending events and writes them, up to MAX_EVENTS_PER_WRITE at a time, with a
+ * single flush on one of at most app.feed.write-threads writer threads, while the dispatch thread waits for at most
+ * app.feed.write-timeout. A subscriber whose write does not finish in time is dropped and its writer thread is
+ * interrupted, so a client that stops reading holds a dispatch thread for at most that long; the stream is closed
+ * once the write returns. When every writer thread is busy, which takes that many stalled clients at once, further
+ * subscribers are dropped instead of adding threads. Clients can resume with Last-Event-ID either way.
+ *
+ * An idle subscriber costs one open connection and no thread. A comment line is sent every
+ * app.feed.heartbeat-interval so that proxies keep the connection open and dead clients are noticed. Heartbeats are
+ * sent by the subscriber's drain, so they never write to a connection concurrently with events.
+ */
+@Component
+public class MessageFeed {
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    public static final String RESET = "reset";
+
+    private static final long NOT_PENDING = -1;
+    private static final int MAX_EVENTS_PER_WRITE = 64;
+
+    private final AtomicReferenceArray<Event> buffer;
+    private final Object publishLock = new Object();
+    /**
+     * The number of the newest event in the buffer, or 0 before the first one.
+     */
+    private volatile long head;
+    private final Set<Subscriber> allSubscribers = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Set<Subscriber>> accountSubscribers = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher;
+    private final ExecutorService writer;
+    private final ScheduledExecutorService heartbeat;
+    private final long timeoutMillis;
+    private final long writeTimeoutMillis;
+
+    public MessageFeed(@Value("${app.feed.buffer-size:4096}") int bufferSize,
+                       @Value("${app.feed.dispatch-threads:4}") int dispatchThreads,
+                       @Value("${app.feed.heartbeat-interval:30s}") Duration heartbeatInterval,
+                       @Value("${app.feed.timeout:1h}") Duration timeout,
+                       @Value("${app.feed.write-timeout:5s}") Duration writeTimeout,
+                       @Value("${app.feed.write-threads:64}") int writeThreads) {
+        this.buffer = new AtomicReferenceArray<>(bufferSize);
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "message-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // No queue: a write either gets a thread right away or is rejected
+        ThreadPoolExecutor writer = new ThreadPoolExecutor(writeThreads, writeThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "message-feed-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.allowCoreThreadTimeOut(true);
+        this.writer = writer;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-feed-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatInterval.toMillis(),
+                heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        this.timeoutMillis = timeout.toMillis();
+        this.writeTimeoutMillis = writeTimeout.toMillis();
+    }
+
+    /**
+     * Opens a subscription that receives every later event, or only those for Messages posted by accountId.
+     *
+     * @param accountId the postedBy to filter on, or null for all Messages
+     * @param lastEventId the id of the last event the client received, from the Last-Event-ID header, or null to
+     *                    start with the next event
+     * @return an SseEmitter object to return from the controller
+     */
+    public SseEmitter subscribe(Integer accountId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        long newest = head;
+        boolean resumable = lastEventId != null && lastEventId <= newest && lastEventId >= oldest(newest) - 1;
+        Subscriber subscriber = new Subscriber(emitter, accountId, resumable ? lastEventId : newest);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        // Commits the response headers right away, so clients see the subscription open before the first event
+        Set<ResponseBodyEmitter.DataWithMediaType> opening = new LinkedHashSet<>(SseEmitter.event().comment("").build());
+        if (lastEventId != null && !resumable)
+            opening.addAll(SseEmitter.event().name(RESET).id(String.valueOf(newest)).data("").build());
+        subscriber.send(opening);
+        if (accountId == null)
+            allSubscribers.add(subscriber);
+        else
+            // Adds within the map's atomic section, so a concurrent unsubscribe cannot remove the set in between
+            accountSubscribers.compute(accountId, (id, subscribers) -> {
+                Set<Subscriber> set = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+                set.add(subscriber);
+                return set;
+            });
+        // Deliver what was published since lastEventId, or while registering
+        subscriber.schedule(subscriber.position + 1);
+        return emitter;
+    }
+
+    public void created(Message message) {
+        publish(CREATED, message);
+    }
+
+    public void updated(Message message) {
+        publish(UPDATED, message);
+    }
+
+    public void deleted(Message message) {
+        publish(DELETED, message);
+    }
+
+    /**
+     * Returns the number of open subscriptions.
+     */
+    public int subscriberCount() {
+        int count = allSubscribers.size();
+        for (Set<Subscriber> subscribers : accountSubscribers.values())
+            count += subscribers.size();
+        return count;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        writer.shutdownNow();
+    }
+
+    private void publish(String type, Message message) {
+        long id;
+        synchronized (publishLock) {
+            id = head + 1;
+            buffer.set(index(id), new Event(id, type, message));
+            head = id;
+        }
+        for (Subscriber subscriber : allSubscribers)
+            subscriber.schedule(id);
+        Set<Subscriber> subscribers = accountSubscribers.get(message.getPostedBy());
+        if (subscribers != null) {
+            for (Subscriber subscriber : subscribers)
+                subscriber.schedule(id);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscriber.accountId == null) {
+            allSubscribers.remove(subscriber);
+            return;
+        }
+        accountSubscribers.computeIfPresent(subscriber.accountId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : allSubscribers)
+            subscriber.heartbeat();
+        for (Set<Subscriber> subscribers : accountSubscribers.values()) {
+            for (Subscriber subscriber : subscribers)
+                subscriber.heartbeat();
+        }
+    }
+
+    private long oldest(long newest) {
+        return Math.max(1, newest - buffer.length() + 1);
+    }
+
+    private int index(long id) {
+        return (int) (id % buffer.length());
+    }
+
+    private record Event(long id, String type, Message message) {
+    }
+
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Integer accountId;
+        /**
+         * The id of the last event this subscriber has been sent or has skipped. Only the draining thread uses it.
+         */
+        private long position;
+        /**
+         * The id of the first event for this subscriber that has not been drained yet, or NOT_PENDING. Whoever sets
+         * it from NOT_PENDING schedules a drain, so at most one drain is queued or running at a time.
+         */
+        private final AtomicLong pendingFrom = new AtomicLong(NOT_PENDING);
+        /**
+         * Whether a heartbeat should be sent on the next drain.
+         */
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Integer accountId, long position) {
+            this.emitter = emitter;
+            this.accountId = accountId;
+            this.position = position;
+        }
+
+        void schedule(long eventId) {
+            if (pendingFrom.compareAndSet(NOT_PENDING, eventId))
+                execute(this::drain);
+        }
+
+        void heartbeat() {
+            heartbeatDue.set(true);
+            schedule(head + 1);
+        }
+
+        private void execute(Runnable task) {
+            try {
+                dispatcher.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+
+        private void drain() {
+            Set<ResponseBodyEmitter.DataWithMediaType> batch = new LinkedHashSet<>();
+            while (true) {
+                if (heartbeatDue.getAndSet(false))
+                    batch.addAll(SseEmitter.event().comment("").build());
+                long newest = head;
+                long oldest = oldest(newest);
+                if (pendingFrom.get() < oldest) {
+                    // Events meant for this subscriber were overwritten before it could be sent them
+                    position = newest;
+                    batch.addAll(SseEmitter.event().name(RESET).id(String.valueOf(newest)).data("").build());
+                }
+                boolean overwritten = false;
+                int events = 0;
+                for (long id = Math.max(position + 1, oldest); id <= newest; id++) {
+                    Event event = buffer.get(index(id));
+                    if (event.id() != id) {
+                        overwritten = true;
+                        break;
+                    }
+                    position = id;
+                    if (matches(event)) {
+                        batch.addAll(SseEmitter.event().name(event.type()).id(String.valueOf(id))
+                                .data(event.message()).build());
+                        if (++events == MAX_EVENTS_PER_WRITE) {
+                            if (!send(batch))
+                                return;
+                            batch = new LinkedHashSet<>();
+                            events = 0;
+                        }
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    if (!send(batch))
+                        return;
+                    batch = new LinkedHashSet<>();
+                }
+                if (overwritten) {
+                    // The buffer wrapped around while draining; skip ahead with a reset on the next pass
+                    pendingFrom.set(0);
+                    continue;
+                }
+
+                pendingFrom.set(NOT_PENDING);
+                // An event or heartbeat after head was read saw pendingFrom set and did not schedule a drain
+                if ((head <= position && !heartbeatDue.get()) || !pendingFrom.compareAndSet(NOT_PENDING, position + 1))
+                    return;
+            }
+        }
+
+        private boolean matches(Event event) {
+            return accountId == null || accountId.equals(event.message().getPostedBy());
+        }
+
+        /**
+         * Writes events on a writer thread and waits for at most app.feed.write-timeout, or closes the subscription
+         * if no writer thread is free, the connection has failed or the write did not finish in time. The items must
+         * not be changed afterwards, since an abandoned write may still be reading them.
+         *
+         * @return false if the subscription was closed
+         */
+        private boolean send(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+            Write write = new Write(items);
+            Future<Void> future;
+            try {
+                future = writer.submit(write);
+            } catch (RejectedExecutionException e) {
+                // Every writer thread is busy, or shutting down; no write of this subscriber is in progress
+                unsubscribe(this);
+                emitter.completeWithError(new IOException("No writer thread available", e));
+                return false;
+            }
+            try {
+                future.get(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (ExecutionException e) {
+                close(write, future, e.getCause());
+            } catch (TimeoutException e) {
+                close(write, future, new IOException("No write progress for " + writeTimeoutMillis + " ms"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close(write, future, e);
+            }
+            return false;
+        }
+
+        private void close(Write write, Future<Void> future, Throwable cause) {
+            unsubscribe(this);
+            write.abandon(future, cause);
+        }
+
+        /**
+         * One write to the subscriber's connection. The emitter serializes sends and completion, so completing the
+         * stream while the write is stalled would block as long as the write; whichever of the write and abandon
+         * finishes second completes it instead, or abandon if the write never started.
+         */
+        private class Write implements Callable<Void> {
+
+            private final Set<ResponseBodyEmitter.DataWithMediaType> items;
+            private final AtomicBoolean started = new AtomicBoolean();
+            private final AtomicBoolean finished = new AtomicBoolean();
+            private volatile Throwable closeCause;
+
+            Write(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+                this.items = items;
+            }
+
+            @Override
+            public Void call() throws IOException {
+                if (!started.compareAndSet(false, true))
+                    return null;
+                try {
+                    emitter.send(items);
+                    return null;
+                } finally {
+                    if (!finished.compareAndSet(false, true))
+                        emitter.completeWithError(closeCause);
+                }
+            }
+
+            /**
+             * Interrupts the write if it is still running, and completes the stream once it has returned.
+             */
+            void abandon(Future<Void> future, Throwable cause) {
+                closeCause = cause;
+                if (started.compareAndSet(false, true)) {
+                    // The write never started
+                    emitter.completeWithError(cause);
+                    return;
+                }
+                future.cancel(true);
+                if (!finished.compareAndSet(false, true))
+                    emitter.completeWithError(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-account token buckets limiting how fast each account may post messages. Each bucket is a single AtomicLong
+ * holding its theoretical arrival time (the generic cell rate algorithm, equivalent to a token bucket), so acquiring a
+ * permit is one compare-and-swap with no locks. Buckets live in a Caffeine cache and are evicted once idle for long
+ * enough to have refilled completely, since a full bucket is indistinguishable from a new one.
+ */
+@Component
+public class MessageRateLimiter {
+
+    private final boolean enabled;
+    /**
+     * The time it takes to earn one permit, in nanoseconds.
+     */
+    private final long emissionIntervalNanos;
+    /**
+     * How far ahead of the present the theoretical arrival time may run, i.e. burst permits' worth of time.
+     */
+    private final long burstNanos;
+    private final Cache<Integer, AtomicLong> buckets;
+
+    public MessageRateLimiter(@Value("${app.messages.rate-limit.enabled:true}") boolean enabled,
+                              @Value("${app.messages.rate-limit.permits-per-second:5}") double permitsPerSecond,
+                              @Value("${app.messages.rate-limit.burst:20}") int burst,
+                              @Value("${app.messages.rate-limit.maximum-accounts:1000000}") long maximumAccounts) {
+        this.enabled = enabled;
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = emissionIntervalNanos * Math.max(1, burst);
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofNanos(Math.max(burstNanos, TimeUnit.SECONDS.toNanos(1))))
+                .maximumSize(maximumAccounts)
+                .build();
+    }
+
+    /**
+     * Takes one permit from the account's bucket if one is available.
+     *
+     * @param accountId the accountId of the posting Account
+     * @return 0 if a permit was taken, otherwise the number of nanoseconds until one becomes available
+     */
+    public long tryAcquire(Integer accountId) {
+        if (!enabled)
+            return 0;
+
+        AtomicLong theoreticalArrival = buckets.get(accountId, id -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrival.get();
+            long next = (current == Long.MIN_VALUE || current - now < 0 ? now : current) + emissionIntervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0)
+                return wait;
+            if (theoreticalArrival.compareAndSet(current, next))
+                return 0;
+        }
+    }
+}
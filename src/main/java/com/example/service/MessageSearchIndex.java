@@ -0,0 +1,403 @@
+package com.example.service;
+
+import com.example.entity.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory inverted index over messageText, answering multi-term AND queries with the newest matching messageIds.
+ *
+ * Text is split into terms at every character that is not a letter or digit, and lower-cased. Each term maps to its
+ * postings: the ids of the Messages containing it, as a sorted int array. The timePostedEpoch of every indexed Message
+ * is kept in a primitive open-addressing map for ranking. A query intersects the postings of its terms, driven by the
+ * shortest and galloping through the others, and keeps the newest limit matches by timePostedEpoch and then messageId,
+ * as every other timeline is ordered. The intersection skips blocks of ids that cannot hold a newer match than those
+ * already found, so for Messages posted in real time a query reads little more than its matches.
+ *
+ * The index is rebuilt from the message table when the application is ready, and kept up to date by MessageService as
+ * Messages are created, updated and deleted. Readers share a read lock; writers, including the rebuild, take the write
+ * lock, so a Message written while the index is rebuilt waits for the rebuild and is then applied on top of it.
+ */
+@Component
+public class MessageSearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageSearchIndex.class);
+    /**
+     * The ranking time of a Message without a timePostedEpoch, which sorts last as it does in H2.
+     */
+    private static final long NO_TIME = Long.MIN_VALUE;
+    /**
+     * Postings are pruned in blocks of 128 ids.
+     */
+    private static final int BLOCK_SHIFT = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final MessageTimes times = new MessageTimes();
+
+    public MessageSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Replaces the contents of the index with every Message in the database, read in one streamed query.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            times.clear();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "select messageId, messageText, timePostedEpoch from message order by messageId");
+                statement.setFetchSize(1000);
+                return statement;
+            }, resultSet -> {
+                long timePostedEpoch = resultSet.getLong(3);
+                add(resultSet.getInt(1), resultSet.getString(2), resultSet.wasNull() ? NO_TIME : timePostedEpoch);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Indexed {} messages and {} terms in {} ms", times.size(), postings.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    public void created(Message message) {
+        lock.writeLock().lock();
+        try {
+            add(message.getMessageId(), message.getMessageText(), rankingTime(message));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updated(Message oldMessage, Message updatedMessage) {
+        lock.writeLock().lock();
+        try {
+            remove(oldMessage.getMessageId(), oldMessage.getMessageText());
+            add(updatedMessage.getMessageId(), updatedMessage.getMessageText(), rankingTime(updatedMessage));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void deleted(Message message) {
+        lock.writeLock().lock();
+        try {
+            remove(message.getMessageId(), message.getMessageText());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the newest Messages containing every term of the query, newest first.
+     *
+     * @param query the text to search for; terms are extracted as from messageText
+     * @param limit the maximum number of messageIds to return
+     * @return a List<Integer> of at most limit messageIds, ordered by timePostedEpoch and then messageId, both
+     * descending; empty if the query has no terms
+     */
+    public List<Integer> search(String query, int limit) {
+        Set<String> terms = terms(query);
+        if (terms.isEmpty())
+            return List.of();
+
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[terms.size()];
+            int i = 0;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null)
+                    return List.of();
+                lists[i++] = list;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            return newestMatches(lists, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Intersects the postings from the highest messageId down, driven by the shortest list, and keeps the newest limit
+     * matches in a small array sorted newest first. Once the array is full, a block of the shortest list whose newest
+     * possible time is not newer than the last kept match is skipped without being read: its ids are all lower than
+     * those already kept, so a tie on time would lose as well. When timePostedEpoch grows with messageId, as it does
+     * when clients post in real time, that prunes every block after the first few and a query reads about limit
+     * matches. Otherwise it degrades to a full intersection.
+     */
+    private List<Integer> newestMatches(Postings[] lists, int limit) {
+        long[] topTimes = new long[limit];
+        int[] topIds = new int[limit];
+        int found = 0;
+        int[] positions = new int[lists.length];
+        for (int l = 1; l < lists.length; l++)
+            positions[l] = lists[l].size - 1;
+        Postings shortest = lists[0];
+        search:
+        for (int block = (shortest.size - 1) >> BLOCK_SHIFT; block >= 0; block--) {
+            if (found == limit && shortest.blockTimes[block] <= topTimes[limit - 1])
+                continue;
+            candidates:
+            for (int c = Math.min(shortest.size, (block + 1) << BLOCK_SHIFT) - 1; c >= block << BLOCK_SHIFT; c--) {
+                int messageId = shortest.ids[c];
+                for (int l = 1; l < lists.length; l++) {
+                    int position = lists[l].seekBack(messageId, positions[l]);
+                    positions[l] = position;
+                    if (position < 0)
+                        break search;
+                    if (lists[l].ids[position] != messageId)
+                        continue candidates;
+                }
+
+                long time = times.get(messageId);
+                if (found == limit && !newer(time, messageId, topTimes[limit - 1], topIds[limit - 1]))
+                    continue;
+                int slot = found == limit ? limit - 1 : found++;
+                while (slot > 0 && newer(time, messageId, topTimes[slot - 1], topIds[slot - 1])) {
+                    topTimes[slot] = topTimes[slot - 1];
+                    topIds[slot] = topIds[slot - 1];
+                    slot--;
+                }
+                topTimes[slot] = time;
+                topIds[slot] = messageId;
+            }
+        }
+
+        List<Integer> messageIds = new ArrayList<>(found);
+        for (int i = 0; i < found; i++)
+            messageIds.add(topIds[i]);
+        return messageIds;
+    }
+
+    private static boolean newer(long time, int messageId, long otherTime, int otherId) {
+        return time != otherTime ? time > otherTime : messageId > otherId;
+    }
+
+    private void add(int messageId, String messageText, long timePostedEpoch) {
+        times.put(messageId, timePostedEpoch);
+        for (String term : terms(messageText))
+            postings.computeIfAbsent(term, t -> new Postings()).add(messageId, timePostedEpoch);
+    }
+
+    private void remove(int messageId, String messageText) {
+        times.remove(messageId);
+        for (String term : terms(messageText)) {
+            Postings list = postings.get(term);
+            if (list != null && list.remove(messageId) && list.size == 0)
+                postings.remove(term);
+        }
+    }
+
+    private static long rankingTime(Message message) {
+        return message.getTimePostedEpoch() == null ? NO_TIME : message.getTimePostedEpoch();
+    }
+
+    /**
+     * Returns the distinct lower-cased terms of a text, in order of first occurrence.
+     */
+    static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null)
+            return terms;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inTerm = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inTerm && start < 0) {
+                start = i;
+            } else if (!inTerm && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * The sorted ids of the Messages containing one term, in blocks of 2^BLOCK_SHIFT, with an upper bound of the
+     * ranking times in each block. Ids are mostly added in increasing order, which appends. Inserting or removing
+     * elsewhere shifts one id across each later block boundary, and only those ids are looked up to keep the bounds
+     * valid. A bound is never lowered, so after removals it may be loose, which costs pruning but not correctness.
+     */
+    private final class Postings {
+
+        private int[] ids = new int[4];
+        private long[] blockTimes = {NO_TIME};
+        private int size;
+
+        void add(int messageId, long time) {
+            int position = size == 0 || ids[size - 1] < messageId ? size : Arrays.binarySearch(ids, 0, size, messageId);
+            if (position >= 0 && position < size)
+                return;
+            int insertion = position < 0 ? -position - 1 : position;
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            System.arraycopy(ids, insertion, ids, insertion + 1, size - insertion);
+            ids[insertion] = messageId;
+            size++;
+
+            int lastBlock = (size - 1) >> BLOCK_SHIFT;
+            if (lastBlock == blockTimes.length) {
+                blockTimes = Arrays.copyOf(blockTimes, blockTimes.length * 2);
+                Arrays.fill(blockTimes, lastBlock, blockTimes.length, NO_TIME);
+            }
+            int block = insertion >> BLOCK_SHIFT;
+            blockTimes[block] = Math.max(blockTimes[block], time);
+            for (block++; block <= lastBlock; block++) {
+                int first = ids[block << BLOCK_SHIFT];
+                blockTimes[block] = Math.max(blockTimes[block], times.get(first));
+            }
+        }
+
+        boolean remove(int messageId) {
+            int position = Arrays.binarySearch(ids, 0, size, messageId);
+            if (position < 0)
+                return false;
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+
+            int lastBlock = (size - 1) >> BLOCK_SHIFT;
+            for (int block = (position >> BLOCK_SHIFT) + 1; block << BLOCK_SHIFT <= size; block++) {
+                int last = ids[(block << BLOCK_SHIFT) - 1];
+                blockTimes[block - 1] = Math.max(blockTimes[block - 1], times.get(last));
+            }
+            if (lastBlock + 1 < blockTimes.length)
+                blockTimes[lastBlock + 1] = NO_TIME;
+            return true;
+        }
+
+        /**
+         * Returns the position of the last id at or before from that is not greater than messageId, or -1 if there is
+         * none. The search gallops backward from from, so a sequence of decreasing targets costs little more than the
+         * distance covered.
+         */
+        int seekBack(int messageId, int from) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (low >= 0 && ids[low] > messageId) {
+                high = low - 1;
+                low -= step;
+                step <<= 1;
+            }
+            if (low == high)
+                return low;
+            int position = Arrays.binarySearch(ids, Math.max(low, 0), high + 1, messageId);
+            return position >= 0 ? position : -position - 2;
+        }
+    }
+
+    /**
+     * A map from messageId to ranking time with open addressing and linear probing, so that millions of entries take
+     * two primitive arrays rather than a boxed entry each.
+     */
+    private static final class MessageTimes {
+
+        private static final int EMPTY = Integer.MIN_VALUE;
+
+        private int[] keys;
+        private long[] values;
+        private int size;
+
+        MessageTimes() {
+            clear();
+        }
+
+        void clear() {
+            keys = new int[16];
+            Arrays.fill(keys, EMPTY);
+            values = new long[16];
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(int messageId) {
+            for (int slot = slot(messageId); keys[slot] != EMPTY; slot = (slot + 1) & (keys.length - 1)) {
+                if (keys[slot] == messageId)
+                    return values[slot];
+            }
+            return NO_TIME;
+        }
+
+        void put(int messageId, long time) {
+            if ((size + 1) * 2 > keys.length)
+                resize(keys.length * 2);
+            int slot = slot(messageId);
+            while (keys[slot] != EMPTY && keys[slot] != messageId)
+                slot = (slot + 1) & (keys.length - 1);
+            if (keys[slot] == EMPTY)
+                size++;
+            keys[slot] = messageId;
+            values[slot] = time;
+        }
+
+        void remove(int messageId) {
+            int slot = slot(messageId);
+            while (keys[slot] != messageId) {
+                if (keys[slot] == EMPTY)
+                    return;
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            keys[slot] = EMPTY;
+            size--;
+            // Move later entries of the same probe run back, so that lookups never stop early at the gap
+            for (int next = (slot + 1) & (keys.length - 1); keys[next] != EMPTY; next = (next + 1) & (keys.length - 1)) {
+                int home = slot(keys[next]);
+                boolean reachable = slot <= next ? home <= slot || home > next : home <= slot && home > next;
+                if (reachable) {
+                    keys[slot] = keys[next];
+                    values[slot] = values[next];
+                    keys[next] = EMPTY;
+                    slot = next;
+                }
+            }
+        }
+
+        private int slot(int messageId) {
+            return (messageId * 0x9E3779B9 >>> 16 ^ messageId * 0x9E3779B9) & (keys.length - 1);
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            values = new long[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    while (keys[slot] != EMPTY)
+                        slot = (slot + 1) & (keys.length - 1);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -1,86 +1,241 @@
 package com.example.service;
 
+import com.example.config.MetricsConfig;
+import com.example.dto.MessageBatchResult;
 import com.example.entity.Message;
+import com.example.exception.InvalidMessageBatchException;
 import com.example.exception.InvalidMessageTextException;
+import com.example.exception.RateLimitExceededException;
 import com.example.exception.ResourceNotFoundException;
-import com.example.repository.AccountRepository;
 import com.example.repository.MessageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class MessageService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageService.class);
+
+    /**
+     * The name of the cache holding Messages by messageId. Set spring.cache.type=none to disable it.
+     */
+    public static final String MESSAGE_CACHE = "messages";
+
+    static final String INVALID_MESSAGE_TEXT = "Message text must not be blank and cannot have more than 255 characters.";
+    static final String MISSING_MESSAGE = "Message must not be null.";
+
     private final MessageRepository messageRepository;
-    private final AccountRepository accountRepository;
+    private final AccountService accountService;
+    private final MessageRateLimiter rateLimiter;
+    private final MessageFeed messageFeed;
+    private final TimelineService timelineService;
+    private final MessageSearchIndex searchIndex;
+    private final TagService tagService;
+    private final LikeCounter likeCounter;
+    private final EntityManager entityManager;
+    /**
+     * The Caffeine cache behind the Spring cache of the same name, which would store a miss as a null value; or null
+     * when caching is turned off with spring.cache.type=none.
+     */
+    private final Cache<Object, Object> messageCache;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Autowired
-    public MessageService(MessageRepository messageRepository, AccountRepository accountRepository) {
+    public MessageService(MessageRepository messageRepository, AccountService accountService,
+                          MessageRateLimiter rateLimiter, MessageFeed messageFeed, TimelineService timelineService,
+                          MessageSearchIndex searchIndex, TagService tagService, LikeCounter likeCounter,
+                          EntityManager entityManager, CacheManager cacheManager,
+                          @Value("${app.messages.default-page-size:100}") int defaultPageSize,
+                          @Value("${app.messages.max-page-size:1000}") int maxPageSize) {
         this.messageRepository = messageRepository;
-        this.accountRepository = accountRepository;
+        this.accountService = accountService;
+        this.rateLimiter = rateLimiter;
+        this.messageFeed = messageFeed;
+        this.timelineService = timelineService;
+        this.searchIndex = searchIndex;
+        this.tagService = tagService;
+        this.likeCounter = likeCounter;
+        this.entityManager = entityManager;
+        Object nativeCache = cacheManager.getCache(MESSAGE_CACHE).getNativeCache();
+        @SuppressWarnings("unchecked")
+        Cache<Object, Object> messageCache = nativeCache instanceof Cache<?, ?> ? (Cache<Object, Object>) nativeCache : null;
+        this.messageCache = messageCache;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     /**
-     * Submits a Message if and only if the messageText is not blank, is not over 255 characters, and postedBy refers
-     * to a real, existing Account. If these conditions are met, the Message is persisted to the database.
+     * Submits a Message if and only if the messageText is not blank, is not over 255 characters, postedBy refers
+     * to a real, existing Account, and that Account is within its posting rate limit. If these conditions are met, the
+     * Message is persisted to the database and added to the home timelines of the Account's followers, and its hashtags
+     * and mentions are recorded.
      *
      * @param message a Message object without a messageId
      * @return the persisted Message object, including its messageId
      * @throws InvalidMessageTextException if messageText is blank or has more than 255 characters
      * @throws ResourceNotFoundException if postedBy does not refer to an existing Account
+     * @throws RateLimitExceededException if the Account has posted too many Messages recently
      */
     public Message createMessage(Message message) {
-        if (message.getMessageText().isEmpty() || message.getMessageText().length() > 255)
-            throw new InvalidMessageTextException("Message text must not be blank and cannot have more than 255 characters.");
+        if (!isValidMessageText(message.getMessageText()))
+            throw new InvalidMessageTextException(INVALID_MESSAGE_TEXT);
 
-        if (accountRepository.findById(message.getPostedBy()).isEmpty())
-            throw new ResourceNotFoundException("Account ID " + message.getPostedBy() + " was not found. Please check account ID and try again.");
+        if (!accountService.accountExists(message.getPostedBy()))
+            throw new ResourceNotFoundException(accountNotFound(message.getPostedBy()));
 
-        return messageRepository.save(message);
+        long waitNanos = rateLimiter.tryAcquire(message.getPostedBy());
+        if (waitNanos > 0)
+            throw new RateLimitExceededException(rateLimited(message.getPostedBy()), retryAfterSeconds(waitNanos));
+
+        Message postedMessage = messageRepository.save(message);
+        created(postedMessage);
+        return postedMessage;
     }
 
     /**
-     * Returns a List containing all Messages from the database. The list is simply empty if there are no Messages.
+     * Submits a batch of Messages, applying the same rules as createMessage to each one, including the rate limit. The postedBy values of the
+     * whole batch are checked with at most one query, and the valid Messages are persisted together in one transaction so
+     * that their inserts are sent as JDBC batches. An invalid item, including a null one, does not prevent the others
+     * from being persisted. A batch may hold at most app.messages.max-page-size items, which bounds the size of the
+     * postedBy query and of the transaction.
      *
-     * @return a List<Message> object containing all Messages in the database
+     * @param messages a List of Message objects without messageIds
+     * @return a List<MessageBatchResult> object with one result per input Message, in the same order
+     * @throws InvalidMessageBatchException if there are more than app.messages.max-page-size Messages
      */
-    public List<Message> getAllMessages() {
-        return messageRepository.findAll();
+    public List<MessageBatchResult> createMessages(List<Message> messages) {
+        if (messages.size() > maxPageSize)
+            throw new InvalidMessageBatchException("A batch cannot have more than " + maxPageSize + " messages.");
+
+        Set<Integer> existingAccountIds = accountService.findExistingAccountIds(messages.stream()
+                .filter(Objects::nonNull)
+                .map(Message::getPostedBy)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        MessageBatchResult[] results = new MessageBatchResult[messages.size()];
+        List<Message> validMessages = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            if (message == null)
+                results[i] = MessageBatchResult.rejected(MISSING_MESSAGE);
+            else if (!isValidMessageText(message.getMessageText()))
+                results[i] = MessageBatchResult.rejected(INVALID_MESSAGE_TEXT);
+            else if (!existingAccountIds.contains(message.getPostedBy()))
+                results[i] = MessageBatchResult.rejected(accountNotFound(message.getPostedBy()));
+            else if (rateLimiter.tryAcquire(message.getPostedBy()) > 0)
+                results[i] = MessageBatchResult.throttled(rateLimited(message.getPostedBy()));
+            else
+                validMessages.add(message);
+        }
+
+        // saveAll persists new Messages in place, so each valid item of the input now carries its messageId
+        messageRepository.saveAll(validMessages);
+        for (int i = 0; i < messages.size(); i++) {
+            if (results[i] == null) {
+                Message postedMessage = messages.get(i);
+                created(postedMessage);
+                results[i] = MessageBatchResult.created(postedMessage);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Returns one page of Messages ordered by messageId, starting strictly after the given cursor. The page is read
+     * with a seek on the primary key rather than an OFFSET, so its cost does not depend on how deep into the table the
+     * cursor points. The returned Slice reports whether a further page exists without issuing a count query.
+     *
+     * @param after the messageId of the last Message of the previous page, or null to start from the beginning
+     * @param limit the requested page size, or null for the default; clamped to the configured maximum
+     * @return a Slice<Message> object containing at most limit Messages
+     */
+    public Slice<Message> getMessages(Integer after, Integer limit) {
+        int cursor = after == null ? Integer.MIN_VALUE : after;
+        return messageRepository.findByMessageIdGreaterThanOrderByMessageIdAsc(cursor, PageRequest.of(0, pageSize(limit)));
+    }
+
+    /**
+     * Passes every Message in the database, ordered by messageId, to the given consumer as it is read from the
+     * result set. Each Message is detached once consumed so the persistence context does not grow with the table,
+     * which keeps memory use constant however many Messages there are.
+     *
+     * @param consumer a Consumer<Message> invoked once per Message, in messageId order
+     */
+    @Transactional(readOnly = true)
+    public void streamAllMessages(Consumer<Message> consumer) {
+        try (Stream<Message> messages = messageRepository.streamAllByOrderByMessageIdAsc()) {
+            messages.forEach(message -> {
+                consumer.accept(message);
+                entityManager.detach(message);
+            });
+        }
     }
 
     /**
      * Returns the Message object identified by the input messageId. If there is no such Message, simply returns null.
+     * Lookups are read through the message cache. A miss is loaded atomically per key, so an eviction issued by a
+     * concurrent update or delete waits for an in-flight load and then removes its result rather than racing it. Ids
+     * of Messages that do not exist are not cached, so probing them cannot evict the Messages that do.
      *
      * @param messageId an Integer denoting a potential messageId of a persisted Message
      * @return the Message identified by the messageId or null
      */
     public Message getMessageById(Integer messageId) {
-        Optional<Message> message = messageRepository.findById(messageId);
-        return message.orElse(null);
+        if (messageCache == null)
+            return messageRepository.findById(messageId).orElse(null);
+
+        return (Message) messageCache.get(messageId, id -> messageRepository.findById(messageId).orElse(null));
     }
 
     /**
      * Removes an existing Message object identified by the input messageId from the database and returns the number of
-     * rows updated (1). If there is no such Message, simply returns null.
+     * rows updated (1). If there is no such Message, simply returns null. The removal is a single DELETE statement that
+     * also returns the deleted row, which is removed from the search index and published to the message feed.
      *
      * @param messageId an Integer denoting a potential messageId of a persisted Message
      * @return an Integer denoting the number of rows updated (1) or null
      */
     public Integer deleteMessageById(Integer messageId) {
-        if (messageRepository.existsById(messageId)) {
-            messageRepository.deleteById(messageId);
-            return 1;
-        }
-        return null;
+        Optional<Message> deletedMessage = messageRepository.deleteByMessageId(messageId);
+        if (deletedMessage.isEmpty())
+            return null;
+
+        deleted(deletedMessage.get());
+        return 1;
     }
 
     /**
      * Updates a Message existing on the database so it has the updated messageText. The update should be successful
      * if and only if the messageId already exists and the new messageText is not blank and is not over 255 characters.
-     * If the update is successful, returns the number of rows updated (1).
+     * If the update is successful, returns the number of rows updated (1). The update is a single UPDATE statement that
+     * also returns the row as it was, which tells whether the messageId exists and which terms to remove from the
+     * search index; the updated Message is published to the message feed.
      *
      * @param messageId an Integer denoting a potential messageId of a persisted Message
      * @param messageText a String that is not blank and is not over 255 characters
@@ -89,29 +244,144 @@ public class MessageService {
      * @throws ResourceNotFoundException if messageId does not refer to an existing Message
      */
     public Integer updateMessageById(Integer messageId, String messageText) {
-        if (messageText.isEmpty() || messageText.length() > 255)
-            throw new InvalidMessageTextException("Message text must not be blank and cannot have more than 255 characters.");
-
-        if (!messageRepository.existsById(messageId))
-            throw new ResourceNotFoundException("Message ID " + messageId + " was not found. Please check message ID and try again.");
+        if (!isValidMessageText(messageText))
+            throw new InvalidMessageTextException(INVALID_MESSAGE_TEXT);
 
-        Message updatedMessage = messageRepository.findById(messageId).get();
-        updatedMessage.setMessageText(messageText);
-        messageRepository.save(updatedMessage);
+        Message oldMessage = messageRepository.updateMessageTextById(messageId, messageText)
+                .orElseThrow(() -> new ResourceNotFoundException(messageNotFound(messageId)));
+        Message updatedMessage = new Message(oldMessage.getMessageId(), oldMessage.getPostedBy(), messageText,
+                oldMessage.getTimePostedEpoch());
 
+        updated(oldMessage, updatedMessage);
         return 1;
     }
 
     /**
-     * Returns a List containing all Messages posted by a particular user retrieved from the database. The list is
-     * simply empty if there are no such Messages.
+     * Returns one page of the Messages posted by a particular user, newest first. Messages are ordered by
+     * timePostedEpoch and then messageId, both descending, and the page starts strictly after the cursor
+     * (beforeTime, beforeId). Messages without a timePostedEpoch come last; a cursor on one of them has a null
+     * beforeTime and a beforeId. The query is a range scan over the (postedBy, timePostedEpoch, messageId) index, so
+     * its cost does not depend on how many Messages the user has posted. The page is simply empty if there are no
+     * such Messages.
      *
      * @param accountId an Integer denoting a potential accountId of a persisted Account
-     * @return a List<Message> object containing all messages posted by the user identified by the accountId in the
-     * database
+     * @param beforeTime the timePostedEpoch of the last Message of the previous page, or null for the first page or
+     *                   when that Message has no timePostedEpoch
+     * @param beforeId the messageId of the last Message of the previous page, or null to include every Message
+     *                 posted at beforeTime; null with a null beforeTime for the first page
+     * @param limit the requested page size, or null for the default; clamped to the configured maximum
+     * @return a Slice<Message> object containing at most limit Messages posted by the user identified by the
+     * accountId
      */
-    public List<Message> getAllMessagesByAccountId(Integer accountId) {
-        return messageRepository.findByPostedBy(accountId);
+    public Slice<Message> getAllMessagesByAccountId(Integer accountId, Long beforeTime, Integer beforeId,
+                                                    Integer limit) {
+        PageRequest page = PageRequest.of(0, pageSize(limit));
+        if (beforeTime == null && beforeId == null)
+            return messageRepository.findByPostedByOrderByTimePostedEpochDescMessageIdDesc(accountId, page);
+        if (beforeTime == null)
+            return messageRepository.findByPostedByUntimedBefore(accountId, beforeId, page);
+
+        int cursorId = beforeId == null ? Integer.MAX_VALUE : beforeId;
+        return messageRepository.findByPostedByBefore(accountId, beforeTime, cursorId, page);
+    }
+
+    /**
+     * Returns the newest Messages whose messageText contains every word of the query, ignoring case. Matches are found
+     * in the in-memory search index and then loaded by messageId in one query; a Message deleted in between is left
+     * out.
+     *
+     * @param query the words to search for
+     * @param limit the maximum number of Messages to return, or null for the default; clamped to the configured
+     *              maximum
+     * @return a List<Message> object ordered by timePostedEpoch and then messageId, both descending; empty if the
+     * query has no words
+     */
+    public List<Message> searchMessages(String query, Integer limit) {
+        List<Integer> messageIds = searchIndex.search(query, pageSize(limit));
+        if (messageIds.isEmpty())
+            return List.of();
+
+        Map<Integer, Message> messages = messageRepository.findAllById(messageIds).stream()
+                .collect(Collectors.toMap(Message::getMessageId, Function.identity()));
+        return messageIds.stream()
+                .map(messages::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Brings everything derived from Messages up to date with a newly persisted one: the message cache, the home
+     * timelines of its author's followers, the search index, its tags, and the message feed. ReactiveMessageService
+     * calls this and the two methods below as well, so both stacks keep the same state.
+     *
+     * The Message is already committed, so a failing update is logged rather than thrown: the request must still be
+     * answered with the persisted Message, or an Idempotency-Key retry would post it a second time.
+     *
+     * @param postedMessage a persisted Message object, including its messageId
+     */
+    void created(Message postedMessage) {
+        if (messageCache != null)
+            messageCache.put(postedMessage.getMessageId(), postedMessage);
+        afterCreate("home timelines", postedMessage, timelineService::fanOut);
+        afterCreate("search index", postedMessage, searchIndex::created);
+        afterCreate("tags", postedMessage, tagService::created);
+        afterCreate("message feed", postedMessage, messageFeed::created);
+    }
+
+    /**
+     * @param oldMessage the Message as it was before the update
+     * @param updatedMessage the Message with its new messageText
+     */
+    void updated(Message oldMessage, Message updatedMessage) {
+        if (messageCache != null)
+            messageCache.invalidate(oldMessage.getMessageId());
+        searchIndex.updated(oldMessage, updatedMessage);
+        tagService.updated(oldMessage, updatedMessage);
+        messageFeed.updated(updatedMessage);
+    }
+
+    /**
+     * @param deletedMessage the Message as it was when deleted
+     */
+    void deleted(Message deletedMessage) {
+        if (messageCache != null)
+            messageCache.invalidate(deletedMessage.getMessageId());
+        searchIndex.deleted(deletedMessage);
+        tagService.deleted(deletedMessage);
+        likeCounter.remove(deletedMessage.getMessageId());
+        messageFeed.deleted(deletedMessage);
+    }
+
+    private static void afterCreate(String what, Message postedMessage, Consumer<Message> update) {
+        try {
+            update.accept(postedMessage);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not add message {} to the {}", postedMessage.getMessageId(), what, e);
+        }
+    }
+
+    static String messageNotFound(Integer messageId) {
+        return "Message ID " + messageId + " was not found. Please check message ID and try again.";
+    }
+
+    static String accountNotFound(Integer accountId) {
+        return "Account ID " + accountId + " was not found. Please check account ID and try again.";
+    }
+
+    static String rateLimited(Integer accountId) {
+        return "Account ID " + accountId + " is posting too quickly. Please wait before posting again.";
+    }
+
+    static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    static boolean isValidMessageText(String messageText) {
+        return messageText != null && !messageText.isEmpty() && messageText.length() <= 255;
+    }
+
+    private int pageSize(Integer limit) {
+        return limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
     }
 
 }
@@ -0,0 +1,148 @@
+package com.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and verifies passwords with salted BCrypt. The KDF runs on a dedicated, bounded pool of threads so that a
+ * burst of logins cannot take CPU from the servlet threads; when the pool's queue is full, work is rejected with a
+ * RejectedExecutionException instead of piling up. Successful verifications are remembered for a short time as a
+ * keyed digest of the password, so a user logging in repeatedly pays for the KDF only once per cache period.
+ */
+@Component
+public class PasswordHasher {
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    /**
+     * Maps a stored BCrypt hash to an HMAC of the password last verified against it. Keying by the stored hash means
+     * an entry can never vouch for a password against any other hash.
+     */
+    private final Cache<String, byte[]> verifiedPasswords;
+    private final SecretKeySpec verificationKey;
+    /**
+     * The hash of a random password, of the same strength as stored hashes, checked in place of the hash of an unknown
+     * user.
+     */
+    private final String dummyHash;
+
+    public PasswordHasher(@Value("${app.passwords.bcrypt-strength:10}") int strength,
+                          @Value("${app.passwords.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+                          @Value("${app.passwords.queue-capacity:1000}") int queueCapacity,
+                          @Value("${app.passwords.verification-cache-ttl:5m}") Duration verificationCacheTtl,
+                          @Value("${app.passwords.verification-cache-size:100000}") long verificationCacheSize) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new PasswordThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.verifiedPasswords = Caffeine.newBuilder()
+                .expireAfterWrite(verificationCacheTtl)
+                .maximumSize(verificationCacheSize)
+                .build();
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.verificationKey = new SecretKeySpec(key, "HmacSHA256");
+        byte[] dummyPassword = new byte[16];
+        new SecureRandom().nextBytes(dummyPassword);
+        this.dummyHash = encoder.encode(HexFormat.of().formatHex(dummyPassword));
+    }
+
+    /**
+     * Hashes a password on the password pool.
+     *
+     * @param rawPassword the password to hash
+     * @return a CompletableFuture completing with the salted BCrypt hash of the password
+     * @throws java.util.concurrent.RejectedExecutionException if the password pool is saturated
+     */
+    public CompletableFuture<String> hash(String rawPassword) {
+        return CompletableFuture.supplyAsync(() -> encoder.encode(rawPassword), executor);
+    }
+
+    /**
+     * Checks a password against a stored hash. A recent successful verification against the same hash completes
+     * immediately; otherwise the check runs on the password pool.
+     *
+     * @param rawPassword the password presented by the user
+     * @param storedHash the BCrypt hash persisted for the user
+     * @return a CompletableFuture completing with true if the password matches the hash
+     * @throws java.util.concurrent.RejectedExecutionException if the password pool is saturated
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String storedHash) {
+        if (rawPassword == null || storedHash == null)
+            return CompletableFuture.completedFuture(false);
+
+        byte[] digest = digest(rawPassword);
+        byte[] verified = verifiedPasswords.getIfPresent(storedHash);
+        if (verified != null && MessageDigest.isEqual(verified, digest))
+            return CompletableFuture.completedFuture(true);
+
+        return CompletableFuture.supplyAsync(() -> {
+            boolean matches = encoder.matches(rawPassword, storedHash);
+            if (matches)
+                verifiedPasswords.put(storedHash, digest);
+            return matches;
+        }, executor);
+    }
+
+    /**
+     * Does the work of matches for a user without a stored hash, checking the password against a hash of a random
+     * password, so that the time taken does not reveal whether the user exists.
+     *
+     * @param rawPassword the password presented for the unknown user
+     * @return a CompletableFuture completing with false
+     * @throws java.util.concurrent.RejectedExecutionException if the password pool is saturated
+     */
+    public CompletableFuture<Boolean> mismatch(String rawPassword) {
+        if (rawPassword == null)
+            return CompletableFuture.completedFuture(false);
+
+        return CompletableFuture.supplyAsync(() -> {
+            encoder.matches(rawPassword, dummyHash);
+            return false;
+        }, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private byte[] digest(String rawPassword) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(verificationKey);
+            return mac.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static class PasswordThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
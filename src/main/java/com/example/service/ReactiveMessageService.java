@@ -0,0 +1,195 @@
+package com.example.service;
+
+import com.example.entity.Message;
+import com.example.exception.InvalidMessageTextException;
+import com.example.exception.RateLimitExceededException;
+import com.example.exception.ResourceNotFoundException;
+import com.example.repository.ReactiveAccountRepository;
+import com.example.repository.ReactiveMessageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+import static com.example.service.MessageService.INVALID_MESSAGE_TEXT;
+import static com.example.service.MessageService.accountNotFound;
+import static com.example.service.MessageService.isValidMessageText;
+import static com.example.service.MessageService.messageNotFound;
+import static com.example.service.MessageService.rateLimited;
+import static com.example.service.MessageService.retryAfterSeconds;
+
+/**
+ * The non-blocking counterpart of MessageService, used by the reactive endpoints. It applies the same validation,
+ * existence checks and rate limit, but reads and writes through R2DBC and does not read through the message cache.
+ * Each write is then passed to MessageService, which updates the message cache, home timelines, search index, tags,
+ * like counts and message feed exactly as for the servlet endpoints. Those updates block on JDBC, so they run on the
+ * bounded elastic scheduler.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveMessageService {
+
+    private final ReactiveMessageRepository messageRepository;
+    private final ReactiveAccountRepository accountRepository;
+    private final MessageRateLimiter rateLimiter;
+    private final MessageService messageService;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public ReactiveMessageService(ReactiveMessageRepository messageRepository,
+                                  ReactiveAccountRepository accountRepository, MessageRateLimiter rateLimiter,
+                                  MessageService messageService,
+                                  @Value("${app.messages.default-page-size:100}") int defaultPageSize,
+                                  @Value("${app.messages.max-page-size:1000}") int maxPageSize) {
+        this.messageRepository = messageRepository;
+        this.accountRepository = accountRepository;
+        this.rateLimiter = rateLimiter;
+        this.messageService = messageService;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Submits a Message under the same conditions as MessageService.createMessage.
+     *
+     * @param message a Message object without a messageId
+     * @return a Mono emitting the persisted Message object, including its messageId, or signalling
+     * InvalidMessageTextException, ResourceNotFoundException or RateLimitExceededException
+     */
+    public Mono<Message> createMessage(Message message) {
+        if (!isValidMessageText(message.getMessageText()))
+            return Mono.error(new InvalidMessageTextException(INVALID_MESSAGE_TEXT));
+
+        return accountRepository.existsByAccountId(message.getPostedBy())
+                .flatMap(exists -> {
+                    if (!exists)
+                        return Mono.error(new ResourceNotFoundException(accountNotFound(message.getPostedBy())));
+
+                    long waitNanos = rateLimiter.tryAcquire(message.getPostedBy());
+                    if (waitNanos > 0)
+                        return Mono.error(new RateLimitExceededException(rateLimited(message.getPostedBy()),
+                                retryAfterSeconds(waitNanos)));
+
+                    return messageRepository.save(message)
+                            .flatMap(postedMessage -> blocking(() -> messageService.created(postedMessage))
+                                    .thenReturn(postedMessage));
+                });
+    }
+
+    /**
+     * Returns one page of Messages ordered by messageId, starting strictly after the given cursor.
+     *
+     * @param after the messageId of the last Message of the previous page, or null to start from the beginning
+     * @param limit the requested page size, or null for the default; clamped to the configured maximum
+     * @return a Mono emitting a Slice<Message> object containing at most limit Messages
+     */
+    public Mono<Slice<Message>> getMessages(Integer after, Integer limit) {
+        int pageSize = pageSize(limit);
+        int cursor = after == null ? Integer.MIN_VALUE : after;
+        return toSlice(messageRepository.findByMessageIdGreaterThan(cursor, pageSize + 1), pageSize);
+    }
+
+    /**
+     * Returns every Message in the database, ordered by messageId. Rows are read from the database only as fast as
+     * the subscriber requests them, so a slow client does not cause the result set to be buffered in memory.
+     *
+     * @return a Flux emitting all Messages in messageId order
+     */
+    public Flux<Message> streamAllMessages() {
+        return messageRepository.findAllOrderByMessageId();
+    }
+
+    /**
+     * Returns the Message identified by the input messageId.
+     *
+     * @param messageId an Integer denoting a potential messageId of a persisted Message
+     * @return a Mono emitting the Message, or completing empty if there is no such Message
+     */
+    public Mono<Message> getMessageById(Integer messageId) {
+        return messageRepository.findById(messageId);
+    }
+
+    /**
+     * Removes the Message identified by the input messageId with a single DELETE statement that also returns the
+     * deleted row.
+     *
+     * @param messageId an Integer denoting a potential messageId of a persisted Message
+     * @return a Mono emitting the number of rows updated (1), or completing empty if there is no such Message
+     */
+    public Mono<Integer> deleteMessageById(Integer messageId) {
+        return messageRepository.deleteByMessageId(messageId)
+                .flatMap(deletedMessage -> blocking(() -> messageService.deleted(deletedMessage))
+                        .thenReturn(1));
+    }
+
+    /**
+     * Updates the messageText of the Message identified by the input messageId with a single UPDATE statement that
+     * also returns the row as it was.
+     *
+     * @param messageId an Integer denoting a potential messageId of a persisted Message
+     * @param messageText a String that is not blank and is not over 255 characters
+     * @return a Mono emitting the number of rows updated (1), or signalling InvalidMessageTextException or
+     * ResourceNotFoundException
+     */
+    public Mono<Integer> updateMessageById(Integer messageId, String messageText) {
+        if (!isValidMessageText(messageText))
+            return Mono.error(new InvalidMessageTextException(INVALID_MESSAGE_TEXT));
+
+        return messageRepository.updateMessageTextById(messageId, messageText)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException(messageNotFound(messageId))))
+                .flatMap(oldMessage -> {
+                    Message updatedMessage = new Message(oldMessage.getMessageId(), oldMessage.getPostedBy(),
+                            messageText, oldMessage.getTimePostedEpoch());
+                    return blocking(() -> messageService.updated(oldMessage, updatedMessage)).thenReturn(1);
+                });
+    }
+
+    /**
+     * Returns one page of the Messages posted by a particular user, newest first, starting strictly after the cursor
+     * (beforeTime, beforeId).
+     *
+     * @param accountId an Integer denoting a potential accountId of a persisted Account
+     * @param beforeTime the timePostedEpoch of the last Message of the previous page, or null for the first page or
+     *                   when that Message has no timePostedEpoch
+     * @param beforeId the messageId of the last Message of the previous page, or null to include every Message
+     *                 posted at beforeTime; null with a null beforeTime for the first page
+     * @param limit the requested page size, or null for the default; clamped to the configured maximum
+     * @return a Mono emitting a Slice<Message> object containing at most limit Messages posted by the user
+     */
+    public Mono<Slice<Message>> getAllMessagesByAccountId(Integer accountId, Long beforeTime, Integer beforeId,
+                                                          Integer limit) {
+        int pageSize = pageSize(limit);
+        if (beforeTime == null && beforeId == null)
+            return toSlice(messageRepository.findByPostedBy(accountId, pageSize + 1), pageSize);
+        if (beforeTime == null)
+            return toSlice(messageRepository.findByPostedByUntimedBefore(accountId, beforeId, pageSize + 1), pageSize);
+
+        int cursorId = beforeId == null ? Integer.MAX_VALUE : beforeId;
+        return toSlice(messageRepository.findByPostedByBefore(accountId, beforeTime, cursorId, pageSize + 1), pageSize);
+    }
+
+    // reads one row past the page, as Spring Data does for a Slice, to tell whether a further page exists
+    private static Mono<Slice<Message>> toSlice(Flux<Message> messages, int pageSize) {
+        return messages.collectList()
+                .map(content -> {
+                    boolean hasNext = content.size() > pageSize;
+                    List<Message> page = hasNext ? content.subList(0, pageSize) : content;
+                    return new SliceImpl<>(page, PageRequest.of(0, pageSize), hasNext);
+                });
+    }
+
+    private static Mono<Void> blocking(Runnable action) {
+        return Mono.fromRunnable(action).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    private int pageSize(Integer limit) {
+        return limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+    }
+}
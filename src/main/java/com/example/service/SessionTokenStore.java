@@ -0,0 +1,56 @@
+package com.example.service;
+
+import com.example.entity.Account;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * An in-memory store of opaque session tokens. Tokens expire a fixed time after they are issued, and the store is
+ * bounded in size. Lookups are lock-free reads of a Caffeine cache, so validating a token never touches the database.
+ */
+@Component
+public class SessionTokenStore {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final Cache<String, Account> sessions;
+
+    public SessionTokenStore(@Value("${app.sessions.ttl:30m}") Duration ttl,
+                             @Value("${app.sessions.maximum-size:1000000}") long maximumSize) {
+        this.sessions = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Issues a new token for the given Account. Only the accountId and username are kept; the password is never
+     * stored with the session.
+     *
+     * @param account an authenticated, persisted Account
+     * @return a URL-safe token that identifies the session
+     */
+    public String issue(Account account) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = encoder.encodeToString(bytes);
+        sessions.put(token, new Account(account.getAccountId(), account.getUsername(), null));
+        return token;
+    }
+
+    /**
+     * @param token a token previously returned by issue
+     * @return the Account the token was issued for, without its password, or null if the token is unknown or expired
+     */
+    public Account resolve(String token) {
+        return sessions.getIfPresent(token);
+    }
+}
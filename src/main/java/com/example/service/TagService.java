@@ -0,0 +1,163 @@
+package com.example.service;
+
+import com.example.config.MetricsConfig;
+import com.example.dto.TrendingTag;
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts #hashtags and @mentions from messageText, keeps them in the message_tag table for per-tag timelines, and
+ * counts hashtags towards the trending tags.
+ *
+ * A hashtag or mention is a # or @ followed by letters, digits and underscores, at the start of the text or after a
+ * character that is not one of those. Hashtags are matched ignoring case and stored lower-cased as #tag; mentions are
+ * stored as @username, as written, and are not checked against existing Accounts. A Message without any costs no
+ * statement.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class TagService {
+
+    private static final Pattern TAG = Pattern.compile("(?<![\\w#@])[#@]\\w+", Pattern.UNICODE_CHARACTER_CLASS);
+    private static final String HASHTAG = "#";
+    private static final String MENTION = "@";
+
+    private final MessageRepository messageRepository;
+    private final TrendingTags trendingTags;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int defaultTrendingLimit;
+
+    public TagService(MessageRepository messageRepository, TrendingTags trendingTags,
+                      @Value("${app.messages.default-page-size:100}") int defaultPageSize,
+                      @Value("${app.messages.max-page-size:1000}") int maxPageSize,
+                      @Value("${app.tags.trending.default-limit:10}") int defaultTrendingLimit) {
+        this.messageRepository = messageRepository;
+        this.trendingTags = trendingTags;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.defaultTrendingLimit = defaultTrendingLimit;
+    }
+
+    /**
+     * Records the hashtags and mentions of a newly persisted Message.
+     *
+     * @param message a persisted Message object
+     */
+    public void created(Message message) {
+        for (String tag : tags(message.getMessageText()))
+            addTag(message, tag);
+    }
+
+    /**
+     * Records the hashtags and mentions added to a Message by an update, and removes those it no longer has. Like
+     * additions, removals only count against the trending tags when they change a row, so a concurrent update or
+     * delete that already removed the tag does not count it twice.
+     *
+     * @param oldMessage the Message as it was before the update
+     * @param updatedMessage the Message as updated
+     */
+    public void updated(Message oldMessage, Message updatedMessage) {
+        Set<String> oldTags = tags(oldMessage.getMessageText());
+        Set<String> newTags = tags(updatedMessage.getMessageText());
+        for (String tag : oldTags) {
+            if (!newTags.contains(tag))
+                removeTag(oldMessage, tag);
+        }
+        for (String tag : newTags) {
+            if (!oldTags.contains(tag))
+                addTag(updatedMessage, tag);
+        }
+    }
+
+    /**
+     * Removes the hashtags and mentions of a deleted Message, and its hashtags from the trending tags. Only the rows
+     * this delete actually removed are counted, so a tag that a concurrent update already removed is not counted
+     * twice.
+     *
+     * @param message the Message as it was before the delete
+     */
+    public void deleted(Message message) {
+        if (tags(message.getMessageText()).isEmpty())
+            return;
+        for (String tag : messageRepository.deleteTags(message.getMessageId())) {
+            if (tag.startsWith(HASHTAG))
+                trendingTags.add(tag.substring(1), message.getTimePostedEpoch(), -1);
+        }
+    }
+
+    /**
+     * Returns one page of the Messages with a hashtag or mention, ordered and paged like getAllMessagesByAccountId.
+     *
+     * @param tag a hashtag, with or without its leading #, or a mention starting with @
+     * @param beforeTime the timePostedEpoch of the last Message of the previous page, or null for the first page or
+     *                   when that Message has no timePostedEpoch
+     * @param beforeId the messageId of the last Message of the previous page, or null to include every Message
+     *                 posted at beforeTime; null with a null beforeTime for the first page
+     * @param limit the requested page size, or null for the default; clamped to the configured maximum
+     * @return a Slice<Message> object containing at most limit Messages with the tag
+     */
+    public Slice<Message> getMessagesByTag(String tag, Long beforeTime, Integer beforeId, Integer limit) {
+        String key = tag.startsWith(MENTION) ? tag
+                : HASHTAG + (tag.startsWith(HASHTAG) ? tag.substring(1) : tag).toLowerCase(Locale.ROOT);
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        // One row more than the page tells whether a further page exists
+        int cursorId = beforeId == null ? Integer.MAX_VALUE : beforeId;
+        List<Message> messages = beforeTime == null && beforeId == null
+                ? messageRepository.findByTag(key, pageSize + 1)
+                : beforeTime == null
+                ? messageRepository.findByTagUntimedBefore(key, cursorId, pageSize + 1)
+                : messageRepository.findByTagBefore(key, beforeTime, cursorId, pageSize + 1);
+        boolean hasNext = messages.size() > pageSize;
+        return new SliceImpl<>(hasNext ? messages.subList(0, pageSize) : messages, PageRequest.of(0, pageSize), hasNext);
+    }
+
+    /**
+     * Returns the most used hashtags of the trending window, answered from memory.
+     *
+     * @param limit the requested number of tags, or null for the default; clamped to app.tags.trending.candidates
+     * @return a List<TrendingTag> ordered by estimated count, most used first
+     */
+    public List<TrendingTag> getTrendingTags(Integer limit) {
+        int tags = limit == null ? defaultTrendingLimit : limit;
+        return trendingTags.top(Math.max(1, Math.min(tags, trendingTags.maxTags())));
+    }
+
+    private void addTag(Message message, String tag) {
+        if (messageRepository.insertTag(tag, message.getMessageId()) == 1 && tag.startsWith(HASHTAG))
+            trendingTags.add(tag.substring(1), message.getTimePostedEpoch(), 1);
+    }
+
+    private void removeTag(Message message, String tag) {
+        if (messageRepository.deleteTag(tag, message.getMessageId()) == 1 && tag.startsWith(HASHTAG))
+            trendingTags.add(tag.substring(1), message.getTimePostedEpoch(), -1);
+    }
+
+    /**
+     * Returns the distinct hashtags (#tag, lower-cased) and mentions (@username) of a text, in order of appearance.
+     */
+    static Set<String> tags(String text) {
+        Set<String> tags = new LinkedHashSet<>();
+        if (text == null)
+            return tags;
+        Matcher matcher = TAG.matcher(text);
+        while (matcher.find()) {
+            String tag = matcher.group();
+            tags.add(tag.startsWith(HASHTAG) ? tag.toLowerCase(Locale.ROOT) : tag);
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.service;
+
+import com.example.config.MetricsConfig;
+import com.example.entity.Message;
+import com.example.exception.InvalidFollowException;
+import com.example.exception.ResourceNotFoundException;
+import com.example.repository.AccountRepository;
+import com.example.repository.MessageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains the follow graph and serves home timelines: the Messages of every Account an Account follows, newest first.
+ *
+ * Home timelines are materialized in the timeline table. A new Message is copied to the timeline of each follower of
+ * its author when it is posted (fan-out on write), so reading a home timeline is one range scan however many Accounts
+ * are followed. Authors with app.timeline.fan-out-on-read-threshold followers or more would make each of their posts
+ * that many inserts; they are marked fan-out-on-read instead, their Messages are not copied, and a home timeline
+ * merges in the newest Messages of each such author it follows when it is read. The mark is never cleared, so an author
+ * dropping back below the threshold does not leave a gap in anybody's timeline.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class TimelineService {
+
+    /**
+     * The order of Message timelines: timePostedEpoch and then messageId, both descending, with a null timePostedEpoch
+     * last, as H2 sorts them.
+     */
+    private static final Comparator<Message> NEWEST_FIRST = Comparator
+            .comparing(Message::getTimePostedEpoch, Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+            .thenComparing(Message::getMessageId)
+            .reversed();
+
+    private final AccountRepository accountRepository;
+    private final MessageRepository messageRepository;
+    private final AccountService accountService;
+    private final int fanOutOnReadThreshold;
+    private final int backfillSize;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    /**
+     * Follower counts of recent authors, so posting by an Account without followers costs no fan-out statement.
+     * Entries are invalidated when a follow starts and ends and once an unfollow commits, and expire after
+     * app.timeline.follower-count-cache-ttl in case a count read elsewhere is cached regardless.
+     */
+    private final Cache<Integer, Integer> followerCounts;
+    /**
+     * The number of follows of each Account that have started and not yet committed or rolled back. While there are
+     * any, fanOut neither reads nor caches the Account's follower count.
+     */
+    private final Map<Integer, Integer> followsInProgress = new ConcurrentHashMap<>();
+    /**
+     * The ids of the Accounts marked fan-out-on-read, loaded on first use. There are few, and they are never unmarked.
+     */
+    private volatile Set<Integer> fanOutOnReadAccounts;
+
+    public TimelineService(AccountRepository accountRepository, MessageRepository messageRepository,
+                           AccountService accountService,
+                           @Value("${app.timeline.fan-out-on-read-threshold:10000}") int fanOutOnReadThreshold,
+                           @Value("${app.timeline.backfill-size:100}") int backfillSize,
+                           @Value("${app.timeline.follower-count-cache-size:100000}") long followerCountCacheSize,
+                           @Value("${app.timeline.follower-count-cache-ttl:1m}") Duration followerCountCacheTtl,
+                           @Value("${app.messages.default-page-size:100}") int defaultPageSize,
+                           @Value("${app.messages.max-page-size:1000}") int maxPageSize) {
+        this.accountRepository = accountRepository;
+        this.messageRepository = messageRepository;
+        this.accountService = accountService;
+        this.fanOutOnReadThreshold = fanOutOnReadThreshold;
+        this.backfillSize = backfillSize;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.followerCounts = Caffeine.newBuilder()
+                .maximumSize(followerCountCacheSize)
+                .expireAfterWrite(followerCountCacheTtl)
+                .build();
+    }
+
+    /**
+     * Makes an Account follow another one. The newest app.timeline.backfill-size Messages of the followed Account are
+     * added to the follower's home timeline, unless it is fanned out on read. From before the follow row is inserted
+     * until the transaction ends, the cached follower count of the followed Account is dropped and a concurrent fanOut
+     * always runs, so no post committed after the backfill is skipped on a count from before the follow. The Account
+     * is only marked fan-out-on-read once the follow commits, so a rollback leaves no mark behind.
+     *
+     * @param followerId an Integer denoting the accountId of the Account that follows
+     * @param followeeId an Integer denoting the accountId of the Account to follow
+     * @return 1 if the follow was added, or null if followerId already followed followeeId
+     * @throws InvalidFollowException if followerId and followeeId are the same
+     * @throws ResourceNotFoundException if either does not refer to an existing Account
+     */
+    @Transactional
+    public Integer follow(Integer followerId, Integer followeeId) {
+        if (followerId.equals(followeeId))
+            throw new InvalidFollowException("Account ID " + followerId + " cannot follow itself.");
+        for (Integer accountId : List.of(followerId, followeeId)) {
+            if (!accountService.accountExists(accountId))
+                throw new ResourceNotFoundException(MessageService.accountNotFound(accountId));
+        }
+
+        startFollow(followeeId);
+        if (accountRepository.insertFollow(followerId, followeeId) == 0)
+            return null;
+
+        accountRepository.addFollowers(followeeId, 1, fanOutOnReadThreshold);
+        Set<Integer> fanOutOnRead = fanOutOnReadAccounts();
+        boolean markFanOutOnRead = false;
+        if (!fanOutOnRead.contains(followeeId)) {
+            if (accountRepository.findFollowerCount(followeeId).orElse(0) >= fanOutOnReadThreshold)
+                markFanOutOnRead = true;
+            else
+                messageRepository.backfillTimeline(followerId, followeeId, backfillSize);
+        }
+        if (markFanOutOnRead)
+            afterCommit(() -> fanOutOnRead.add(followeeId));
+        return 1;
+    }
+
+    /**
+     * Makes an Account stop following another one, and removes the other Account's Messages from its home timeline.
+     *
+     * @param followerId an Integer denoting the accountId of the Account that follows
+     * @param followeeId an Integer denoting the accountId of the followed Account
+     * @return 1 if the follow was removed, or null if there was none
+     */
+    @Transactional
+    public Integer unfollow(Integer followerId, Integer followeeId) {
+        if (accountRepository.deleteFollow(followerId, followeeId) == 0)
+            return null;
+
+        accountRepository.addFollowers(followeeId, -1, fanOutOnReadThreshold);
+        messageRepository.removeFromTimeline(followerId, followeeId);
+        afterCommit(() -> followerCounts.invalidate(followeeId));
+        return 1;
+    }
+
+    /**
+     * Adds a newly posted Message to the home timelines of its author's followers, unless the author is fanned out on
+     * read or has no followers and is not being followed right now.
+     *
+     * @param message a persisted Message object
+     */
+    public void fanOut(Message message) {
+        Integer postedBy = message.getPostedBy();
+        if (fanOutOnReadAccounts().contains(postedBy))
+            return;
+        if (followsInProgress.containsKey(postedBy)
+                || followerCounts.get(postedBy, id -> accountRepository.findFollowerCount(id).orElse(0)) > 0)
+            messageRepository.fanOut(message.getMessageId());
+    }
+
+    /**
+     * Returns one page of the home timeline of an Account, ordered and paged like getAllMessagesByAccountId. The page
+     * is read from the materialized timeline, and merged with the newest Messages of each followed Account that is
+     * fanned out on read.
+     *
+     * @param accountId an Integer denoting a potential accountId of a persisted Account
+     * @param beforeTime the timePostedEpoch of the last Message of the previous page, or null for the first page or
+     *                   when that Message has no timePostedEpoch
+     * @param beforeId the messageId of the last Message of the previous page, or null to include every Message
+     *                 posted at beforeTime; null with a null beforeTime for the first page
+     * @param limit the requested page size, or null for the default; clamped to the configured maximum
+     * @return a Slice<Message> object containing at most limit Messages posted by Accounts the user follows
+     */
+    public Slice<Message> getHomeTimeline(Integer accountId, Long beforeTime, Integer beforeId, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        int cursorId = beforeId == null ? Integer.MAX_VALUE : beforeId;
+        // One row more than the page tells whether a further page exists
+        List<Message> messages = new ArrayList<>(beforeTime == null && beforeId == null
+                ? messageRepository.findHomeTimeline(accountId, pageSize + 1)
+                : beforeTime == null
+                ? messageRepository.findHomeTimelineUntimedBefore(accountId, cursorId, pageSize + 1)
+                : messageRepository.findHomeTimelineBefore(accountId, beforeTime, cursorId, pageSize + 1));
+
+        Set<Integer> fanOutOnRead = fanOutOnReadAccounts();
+        if (!fanOutOnRead.isEmpty()) {
+            PageRequest page = PageRequest.of(0, pageSize + 1);
+            for (Integer followeeId : accountRepository.findFollowedAmong(accountId, fanOutOnRead)) {
+                messages.addAll((beforeTime == null && beforeId == null
+                        ? messageRepository.findByPostedByOrderByTimePostedEpochDescMessageIdDesc(followeeId, page)
+                        : beforeTime == null
+                        ? messageRepository.findByPostedByUntimedBefore(followeeId, cursorId, page)
+                        : messageRepository.findByPostedByBefore(followeeId, beforeTime, cursorId, page)).getContent());
+            }
+            messages = newestDistinct(messages);
+        }
+
+        boolean hasNext = messages.size() > pageSize;
+        return new SliceImpl<>(hasNext ? messages.subList(0, pageSize) : messages, PageRequest.of(0, pageSize), hasNext);
+    }
+
+    /**
+     * Sorts Messages newest first and drops duplicates. The materialized timeline holds each Message once, but
+     * Messages posted before their author was marked fan-out-on-read are in it as well as in the author's own page.
+     * Each source was read with one row more than the page, so the merged page is never short.
+     */
+    private static List<Message> newestDistinct(List<Message> messages) {
+        messages.sort(NEWEST_FIRST);
+        List<Message> distinct = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (distinct.isEmpty() || !distinct.get(distinct.size() - 1).getMessageId().equals(message.getMessageId()))
+                distinct.add(message);
+        }
+        return distinct;
+    }
+
+    /**
+     * Runs an action once the current transaction commits, and not at all if it rolls back. A Caffeine invalidation
+     * waits for a load of the same key in flight, so a count loaded before the commit is dropped rather than kept.
+     */
+    /**
+     * Registers a follow of followeeId in progress and drops its cached follower count, and undoes the registration
+     * and drops the count again, which may have been cached from before the commit, when the transaction ends.
+     */
+    private void startFollow(Integer followeeId) {
+        followsInProgress.merge(followeeId, 1, Integer::sum);
+        followerCounts.invalidate(followeeId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                followerCounts.invalidate(followeeId);
+                followsInProgress.computeIfPresent(followeeId, (id, follows) -> follows == 1 ? null : follows - 1);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private Set<Integer> fanOutOnReadAccounts() {
+        Set<Integer> accounts = fanOutOnReadAccounts;
+        if (accounts == null) {
+            synchronized (this) {
+                accounts = fanOutOnReadAccounts;
+                if (accounts == null) {
+                    accounts = ConcurrentHashMap.newKeySet();
+                    accounts.addAll(accountRepository.findFanOutOnReadAccountIds());
+                    fanOutOnReadAccounts = accounts;
+                }
+            }
+        }
+        return accounts;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.service;
+
+import com.example.dto.TrendingTag;
+import com.example.util.CountMinSketch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Tracks the most used hashtags over a sliding window of timePostedEpoch, in memory of a fixed size.
+ *
+ * The window of app.tags.trending.window is divided into app.tags.trending.buckets buckets, held in a ring. Each bucket
+ * counts tag uses in a Count-Min Sketch, and keeps the app.tags.trending.candidates tags with the highest counts so far
+ * in a min-heap, so a tag replaces the least used candidate as soon as its estimate overtakes it. The top tags of the
+ * window are found by summing, over the buckets, the estimates of every bucket's candidates. That takes
+ * buckets * candidates lookups, however many Messages and distinct tags there are.
+ *
+ * The window ends at the newest timePostedEpoch counted, so it advances with the Messages rather than the clock; a
+ * timePostedEpoch in the future counts as the current time. Uses older than the window are ignored. The counts are
+ * replayed from the message_tag table when the application is ready.
+ */
+@Component
+public class TrendingTags {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrendingTags.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long bucketSeconds;
+    private final Bucket[] buckets;
+    private final int candidates;
+    /**
+     * The number of the newest bucket counted, in units of bucketSeconds since the epoch.
+     */
+    private long newest = Long.MIN_VALUE;
+
+    public TrendingTags(JdbcTemplate jdbcTemplate,
+                        @Value("${app.tags.trending.window:1h}") Duration window,
+                        @Value("${app.tags.trending.buckets:12}") int bucketCount,
+                        @Value("${app.tags.trending.candidates:100}") int candidates,
+                        @Value("${app.tags.trending.epsilon:0.001}") double epsilon,
+                        @Value("${app.tags.trending.confidence:0.99}") double confidence) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bucketSeconds = Math.max(1, window.getSeconds() / bucketCount);
+        this.buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++)
+            buckets[i] = new Bucket(new CountMinSketch(epsilon, confidence));
+        this.candidates = candidates;
+    }
+
+    /**
+     * Replaces the counts with the tag uses of the last window in the message_tag table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void replay() {
+        for (Bucket bucket : buckets)
+            bucket.reset(Long.MIN_VALUE);
+        newest = Long.MIN_VALUE;
+
+        Long latest = jdbcTemplate.queryForObject(
+                "select max(timePostedEpoch) from message_tag where tag like '#%'", Long.class);
+        if (latest == null)
+            return;
+        long from = (bucketOf(latest) - buckets.length + 1) * bucketSeconds;
+        int[] uses = {0};
+        jdbcTemplate.query("select tag, timePostedEpoch from message_tag where tag like '#%' and timePostedEpoch >= ?",
+                resultSet -> {
+                    add(resultSet.getString(1).substring(1), resultSet.getLong(2), 1);
+                    uses[0]++;
+                }, from);
+        LOGGER.info("Replayed {} trending tag uses", uses[0]);
+    }
+
+    /**
+     * Counts a tag used by a Message, or removes a use when delta is negative.
+     *
+     * @param tag the hashtag, without its leading #
+     * @param timePostedEpoch the timePostedEpoch of the Message, or null for the current time
+     * @param delta 1 to count a use, -1 to remove one
+     */
+    public synchronized void add(String tag, Long timePostedEpoch, int delta) {
+        long number = bucketOf(timePostedEpoch);
+        if (newest != Long.MIN_VALUE && number <= newest - buckets.length)
+            return;
+        Bucket bucket = buckets[(int) Math.floorMod(number, (long) buckets.length)];
+        if (bucket.number != number) {
+            if (delta < 0)
+                return;
+            bucket.reset(number);
+        }
+        newest = Math.max(newest, number);
+        bucket.sketch.add(tag, delta);
+        bucket.offer(tag, bucket.sketch.estimateCount(tag), candidates);
+    }
+
+    /**
+     * Returns the most used tags of the window, most used first.
+     *
+     * @param limit the maximum number of tags to return
+     * @return a List<TrendingTag> of at most limit tags with a positive estimated count, ordered by count and then tag
+     */
+    public synchronized List<TrendingTag> top(int limit) {
+        Set<String> tags = new HashSet<>();
+        for (Bucket bucket : buckets) {
+            if (inWindow(bucket))
+                tags.addAll(bucket.candidates.keySet());
+        }
+
+        List<TrendingTag> trending = new ArrayList<>(tags.size());
+        for (String tag : tags) {
+            long count = 0;
+            for (Bucket bucket : buckets) {
+                if (inWindow(bucket))
+                    count += bucket.sketch.estimateCount(tag);
+            }
+            if (count > 0)
+                trending.add(new TrendingTag(tag, count));
+        }
+        trending.sort(Comparator.comparingLong(TrendingTag::getCount).reversed().thenComparing(TrendingTag::getTag));
+        return List.copyOf(trending.subList(0, Math.min(limit, trending.size())));
+    }
+
+    public int maxTags() {
+        return candidates;
+    }
+
+    private boolean inWindow(Bucket bucket) {
+        return bucket.number != Long.MIN_VALUE && bucket.number > newest - buckets.length;
+    }
+
+    private long bucketOf(Long timePostedEpoch) {
+        long now = Instant.now().getEpochSecond();
+        return Math.floorDiv(timePostedEpoch == null ? now : Math.min(timePostedEpoch, now), bucketSeconds);
+    }
+
+    /**
+     * The counts of one bucketSeconds interval.
+     */
+    private static final class Bucket {
+
+        private final CountMinSketch sketch;
+        private final Map<String, Candidate> candidates = new HashMap<>();
+        private final PriorityQueue<Candidate> leastUsed = new PriorityQueue<>(Comparator.comparingLong(c -> c.count));
+        private long number = Long.MIN_VALUE;
+
+        Bucket(CountMinSketch sketch) {
+            this.sketch = sketch;
+        }
+
+        void reset(long number) {
+            this.number = number;
+            sketch.clear();
+            candidates.clear();
+            leastUsed.clear();
+        }
+
+        /**
+         * Records the new estimate of a tag, making it a candidate if there is room or it is used more than the least
+         * used candidate, which it then replaces.
+         */
+        void offer(String tag, long count, int maxCandidates) {
+            Candidate candidate = candidates.get(tag);
+            if (candidate != null) {
+                leastUsed.remove(candidate);
+            } else if (candidates.size() < maxCandidates) {
+                candidate = new Candidate(tag);
+                candidates.put(tag, candidate);
+            } else if (count > leastUsed.peek().count) {
+                candidates.remove(leastUsed.poll().tag);
+                candidate = new Candidate(tag);
+                candidates.put(tag, candidate);
+            } else {
+                return;
+            }
+            candidate.count = count;
+            leastUsed.add(candidate);
+        }
+    }
+
+    private static final class Candidate {
+
+        private final String tag;
+        private long count;
+
+        Candidate(String tag) {
+            this.tag = tag;
+        }
+    }
+}
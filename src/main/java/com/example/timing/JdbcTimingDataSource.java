@@ -0,0 +1,70 @@
+package com.example.timing;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Adds each JDBC statement and batch executed through the wrapped DataSource to the current RequestTiming. Timing at
+ * the connection rather than in Hibernate covers every caller on the request thread: Spring Data repositories,
+ * Hibernate and JdbcTemplate alike. Connections and statements are wrapped in JDK proxies that time the execute
+ * methods and pass every other call straight through.
+ */
+class JdbcTimingDataSource extends DelegatingDataSource {
+
+    JdbcTimingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(Connection.class, super.getConnection(username, password));
+    }
+
+    private static <T> T timed(Class<T> type, T target) {
+        return type.cast(Proxy.newProxyInstance(JdbcTimingDataSource.class.getClassLoader(), new Class<?>[] {type},
+                new TimingHandler(target)));
+    }
+
+    private static class TimingHandler implements InvocationHandler {
+
+        private final Object target;
+
+        TimingHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            RequestTiming timing = target instanceof Statement && method.getName().startsWith("execute")
+                    ? RequestTiming.current()
+                    : null;
+            long start = timing == null ? 0 : System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (timing != null)
+                    timing.jdbcExecuted(System.nanoTime() - start);
+            }
+            // createStatement, prepareStatement and prepareCall return the type they are declared with
+            if (target instanceof Connection && result instanceof Statement)
+                return timed(method.getReturnType().asSubclass(Statement.class), (Statement) result);
+            return result;
+        }
+    }
+}
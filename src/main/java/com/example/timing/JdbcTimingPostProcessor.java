@@ -0,0 +1,25 @@
+package com.example.timing;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application's DataSource in a JdbcTimingDataSource while request timing is enabled. The wrapper delegates
+ * unwrap and isWrapperFor, so the HikariCP pool metrics still find the pool behind it.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "app.timing.enabled", matchIfMissing = true)
+public class JdbcTimingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof JdbcTimingDataSource))
+            return new JdbcTimingDataSource(dataSource);
+        return bean;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.timing;
+
+import java.util.Locale;
+
+/**
+ * Collects where the time of one HTTP request goes. ServerTimingFilter binds an instance to the thread handling the
+ * request; ServiceTimingAspect, JdbcTimingDataSource and TimingJacksonHttpMessageConverter add to it while the request
+ * runs. Outside a request there is no current instance and recording is a single ThreadLocal lookup.
+ *
+ * The reported parts do not overlap: service excludes the JDBC time spent inside services, and controller is whatever
+ * remains of the total: dispatch, argument binding and filters, plus any wait for asynchronous work such as password
+ * hashing during login.
+ */
+public final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private long serviceNanos;
+    private int serviceDepth;
+    private long serviceStartNanos;
+    private long jdbcNanos;
+    private int jdbcStatements;
+    private long serializationNanos;
+
+    /**
+     * Returns the RequestTiming of the request being handled on this thread, or null if there is none.
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    static void bind(RequestTiming timing) {
+        CURRENT.set(timing);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Marks the start of a service call. Calls from one service into another are counted once, by the outermost call.
+     */
+    void serviceStarted() {
+        if (serviceDepth++ == 0)
+            serviceStartNanos = System.nanoTime();
+    }
+
+    void serviceEnded() {
+        if (--serviceDepth == 0)
+            serviceNanos += System.nanoTime() - serviceStartNanos;
+    }
+
+    void jdbcExecuted(long nanos) {
+        jdbcNanos += nanos;
+        jdbcStatements++;
+    }
+
+    void serialized(long nanos) {
+        serializationNanos += nanos;
+    }
+
+    public long getTotalNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public long getServiceNanos() {
+        return Math.max(0, serviceNanos - jdbcNanos);
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos;
+    }
+
+    public int getJdbcStatements() {
+        return jdbcStatements;
+    }
+
+    public long getSerializationNanos() {
+        return serializationNanos;
+    }
+
+    /**
+     * Formats the breakdown so far as a Server-Timing header value, with durations in milliseconds, for example
+     * controller;dur=0.41, service;dur=0.12, db;dur=1.87;desc="2 statements", serialization;dur=0.05, total;dur=2.45
+     */
+    public String toServerTimingHeader() {
+        long total = getTotalNanos();
+        long service = getServiceNanos();
+        long controller = Math.max(0, total - service - jdbcNanos - serializationNanos);
+        return "controller;dur=" + millis(controller) +
+                ", service;dur=" + millis(service) +
+                ", db;dur=" + millis(jdbcNanos) + ";desc=\"" + jdbcStatements + " statements\"" +
+                ", serialization;dur=" + millis(serializationNanos) +
+                ", total;dur=" + millis(total);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.timing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every request and returns the breakdown collected in its RequestTiming in a Server-Timing response header.
+ * The header is added just before the response is committed, which for JSON bodies is after serialization.
+ *
+ * Requests taking at least app.timing.slow-request-threshold are logged at WARN to the com.example.timing.SlowRequests
+ * logger with the same breakdown. Asynchronous requests, such as login, are timed from the initial dispatch to the end
+ * of the async dispatch that writes the response. A streamed response reports the time up to its first byte.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final Logger SLOW_REQUESTS = LoggerFactory.getLogger("com.example.timing.SlowRequests");
+    private static final String TIMING_ATTRIBUTE = RequestTiming.class.getName();
+
+    private final boolean enabled;
+    private final long slowRequestThresholdNanos;
+
+    public ServerTimingFilter(@Value("${app.timing.enabled:true}") boolean enabled,
+                              @Value("${app.timing.slow-request-threshold:500ms}") Duration slowRequestThreshold) {
+        this.enabled = enabled;
+        this.slowRequestThresholdNanos = slowRequestThreshold.toNanos();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming timing = (RequestTiming) request.getAttribute(TIMING_ATTRIBUTE);
+        if (timing == null) {
+            timing = new RequestTiming();
+            request.setAttribute(TIMING_ATTRIBUTE, timing);
+        }
+
+        ServerTimingResponse timedResponse = new ServerTimingResponse(response, timing);
+        RequestTiming.bind(timing);
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            RequestTiming.unbind();
+        }
+        if (isAsyncStarted(request))
+            return;
+
+        timedResponse.addServerTimingHeader();
+        long totalNanos = timing.getTotalNanos();
+        if (totalNanos >= slowRequestThresholdNanos && !isEventStream(response) && SLOW_REQUESTS.isWarnEnabled()) {
+            String query = request.getQueryString();
+            SLOW_REQUESTS.warn("{} {} returned {} in {} ms: {}", request.getMethod(),
+                    query == null ? request.getRequestURI() : request.getRequestURI() + "?" + query,
+                    response.getStatus(), TimeUnit.NANOSECONDS.toMillis(totalNanos), timing.toServerTimingHeader());
+        }
+    }
+
+    /**
+     * Server-Sent Event streams stay open by design, so their duration says nothing about how slow they were.
+     */
+    private static boolean isEventStream(HttpServletResponse response) {
+        String contentType = response.getContentType();
+        return contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    /**
+     * Adds the Server-Timing header the first time the response body or an error is about to be sent.
+     */
+    private static class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTiming timing;
+
+        ServerTimingResponse(HttpServletResponse response, RequestTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        void addServerTimingHeader() {
+            if (!isCommitted() && !containsHeader(SERVER_TIMING_HEADER))
+                setHeader(SERVER_TIMING_HEADER, timing.toServerTimingHeader());
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTimingHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTimingHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTimingHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTimingHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTimingHeader();
+            super.sendError(sc);
+        }
+    }
+}
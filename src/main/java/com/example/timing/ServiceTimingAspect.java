@@ -0,0 +1,28 @@
+package com.example.timing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the time spent in public methods of the application's @Service beans to the current RequestTiming.
+ */
+@Aspect
+@Component
+public class ServiceTimingAspect {
+
+    @Around("within(com.example.service..*) && @within(org.springframework.stereotype.Service)")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null)
+            return joinPoint.proceed();
+
+        timing.serviceStarted();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timing.serviceEnded();
+        }
+    }
+}
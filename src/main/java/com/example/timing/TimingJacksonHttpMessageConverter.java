@@ -0,0 +1,106 @@
+package com.example.timing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Replaces Spring Boot's JSON converter, with the same ObjectMapper, to time serialization of response bodies.
+ *
+ * The Server-Timing header has to be sent before the body, so during a timed request the first 8KB of the body are
+ * held back until serialization either finishes or outgrows them. Small bodies report their full serialization time;
+ * larger ones report the time up to their first byte and stream the rest straight to the response.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TimingJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private static final int HELD_BACK_BYTES = 8 * 1024;
+
+    public TimingJacksonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+
+        TimingBody body = new TimingBody(timing, outputMessage);
+        super.writeInternal(object, type, new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return outputMessage.getHeaders();
+            }
+        });
+        body.release();
+    }
+
+    private static class TimingBody extends OutputStream {
+
+        private final RequestTiming timing;
+        private final HttpOutputMessage outputMessage;
+        private final long start = System.nanoTime();
+        private final byte[] heldBack = new byte[HELD_BACK_BYTES];
+        private int held;
+        private OutputStream response;
+
+        TimingBody(RequestTiming timing, HttpOutputMessage outputMessage) {
+            this.timing = timing;
+            this.outputMessage = outputMessage;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (response == null && held < heldBack.length) {
+                heldBack[held++] = (byte) b;
+                return;
+            }
+            release().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (response == null && held + len <= heldBack.length) {
+                System.arraycopy(b, off, heldBack, held, len);
+                held += len;
+                return;
+            }
+            release().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (response != null)
+                response.flush();
+        }
+
+        /**
+         * Records the serialization time so far and opens the response body, which sends the Server-Timing header,
+         * then writes what was held back.
+         */
+        OutputStream release() throws IOException {
+            if (response == null) {
+                timing.serialized(System.nanoTime() - start);
+                response = outputMessage.getBody();
+                response.write(heldBack, 0, held);
+            }
+            return response;
+        }
+    }
+}
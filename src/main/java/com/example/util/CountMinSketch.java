@@ -0,0 +1,68 @@
+package com.example.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Count-Min Sketch estimating how often each String has been counted, in space independent of the number
+ * of distinct Strings. Counters are updated atomically, so concurrent add and estimateCount calls never block each
+ * other. As long as no String's true count goes below zero, an estimate is never below the true count, and exceeds it
+ * by at most epsilon times the total of all counts with the probability the sketch was sized for.
+ */
+public class CountMinSketch {
+
+    private final AtomicLongArray counters;
+    private final int width;
+    private final int depth;
+
+    /**
+     * Sizes the sketch for the desired error bound and confidence.
+     *
+     * @param epsilon the maximum overestimate, as a fraction of the total of all counts
+     * @param confidence the probability that an estimate is within that bound, below 1
+     */
+    public CountMinSketch(double epsilon, double confidence) {
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = Math.max(1, (int) Math.ceil(Math.log(1 / (1 - confidence))));
+        this.counters = new AtomicLongArray(width * depth);
+    }
+
+    /**
+     * Adds to the count of a value. A negative delta removes earlier counts.
+     *
+     * @param value the value to count
+     * @param delta the amount to add
+     */
+    public void add(String value, long delta) {
+        long hash = Hashing.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++)
+            counters.addAndGet(index(row, h1, h2), delta);
+    }
+
+    /**
+     * @param value the value to look up
+     * @return an estimate of the count of the value that is never below its true count
+     */
+    public long estimateCount(String value) {
+        long hash = Hashing.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++)
+            estimate = Math.min(estimate, counters.get(index(row, h1, h2)));
+        return estimate;
+    }
+
+    /**
+     * Resets every count to zero. Counts added concurrently with clear may or may not survive it.
+     */
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++)
+            counters.set(i, 0);
+    }
+
+    private int index(int row, int h1, int h2) {
+        return row * width + ((h1 + (row + 1) * h2) & Integer.MAX_VALUE) % width;
+    }
+}
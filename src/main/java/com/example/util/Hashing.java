@@ -0,0 +1,28 @@
+package com.example.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * String hashing shared by the probabilistic structures in this package.
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes of the value, followed by a final avalanche so both halves are usable as
+     * independent hashes for double hashing.
+     */
+    static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,23 +1,94 @@
+drop table if exists timeline;
+drop table if exists follow;
+drop table if exists message_tag;
+drop table if exists message_like_count;
+drop table if exists message_like;
 drop table if exists message;
 drop table if exists account;
+drop sequence if exists message_seq;
+drop sequence if exists account_seq;
+-- Hibernate reserves ids in blocks of 50 (pooled-lo): nextval v reserves v..v+49. A plain SQL insert takes one value
+-- from the same sequence through the column default, which is always the start of an unused block.
+-- The test rows below use ids 9996 to 9999, inside the block starting at 9951; the entities' ReservedIdSequenceGenerator
+-- skips them, and no block starts there.
+create sequence account_seq start with 1 increment by 50;
+create sequence message_seq start with 1 increment by 50;
 create table account (
-    accountId int primary key auto_increment,
+    accountId int default next value for account_seq primary key,
     username varchar(255) not null unique,
-    password varchar(255)
+    password varchar(255),
+    -- Maintained by follow and unfollow; not mapped by the Account entity
+    followerCount int default 0 not null,
+    -- Set once followerCount reaches app.timeline.fan-out-on-read-threshold, and never cleared
+    fanOutOnRead boolean default false not null
 );
 create table message (
-    messageId int primary key auto_increment,
+    messageId int default next value for message_seq primary key,
     postedBy int,
     messageText varchar(255),
     timePostedEpoch bigint,
-    foreign key (postedBy) references account(accountId)
+    constraint message_postedBy_fk foreign key (postedBy) references account(accountId)
 );
+-- Serves per-account timelines newest first as an index range scan
+create index message_postedBy_timePostedEpoch_idx on message (postedBy, timePostedEpoch desc, messageId desc);
+
+-- The hashtags ('#' followed by the lower-cased tag) and mentions ('@' followed by the username) of each Message
+create table message_tag (
+    tag varchar(255) not null,
+    messageId int not null,
+    timePostedEpoch bigint,
+    -- No foreign key: TagService deletes a deleted Message's rows itself, so it can uncount exactly the rows removed
+    constraint message_tag_pk primary key (tag, messageId)
+);
+-- Serves per-tag timelines newest first as an index range scan
+create index message_tag_tag_timePostedEpoch_idx on message_tag (tag, timePostedEpoch desc, messageId desc);
+
+-- One row per like, so an account likes a Message at most once
+create table message_like (
+    messageId int not null,
+    accountId int not null,
+    primary key (messageId, accountId),
+    constraint message_like_messageId_fk foreign key (messageId) references message(messageId) on delete cascade,
+    constraint message_like_accountId_fk foreign key (accountId) references account(accountId)
+);
+-- Like totals, split over app.likes.shards rows per Message so concurrent flushes rarely update the same row.
+-- A Message's total is the sum of its rows; a single row may be negative.
+create table message_like_count (
+    messageId int not null,
+    shard int not null,
+    likes bigint not null,
+    primary key (messageId, shard),
+    constraint message_like_count_messageId_fk foreign key (messageId) references message(messageId) on delete cascade
+);
+
+create table follow (
+    followerId int not null,
+    followeeId int not null,
+    primary key (followerId, followeeId),
+    constraint follow_followerId_fk foreign key (followerId) references account(accountId),
+    constraint follow_followeeId_fk foreign key (followeeId) references account(accountId)
+);
+-- Finds the followers of an account for fan-out on write
+create index follow_followeeId_idx on follow (followeeId, followerId);
+
+-- The materialized home timeline of each account: one row per Message posted by an account it follows
+create table timeline (
+    accountId int not null,
+    messageId int not null,
+    postedBy int not null,
+    timePostedEpoch bigint,
+    constraint timeline_pk primary key (accountId, messageId),
+    constraint timeline_messageId_fk foreign key (messageId) references message(messageId) on delete cascade
+);
+-- Serves home timelines newest first as an index range scan
+create index timeline_accountId_timePostedEpoch_idx on timeline (accountId, timePostedEpoch desc, messageId desc);
 
 -- Starting test values with ids of 9999 to avoid test issues
-insert into account values (9999, 'testuser1', 'password');
-insert into account values (9998, 'testuser2', 'password');
-insert into account values (9997, 'testuser3', 'password');
-insert into account values (9996, 'testuser4', 'password');
+-- Passwords are stored as BCrypt hashes; every test account's password is 'password'
+insert into account (accountId, username, password) values (9999, 'testuser1', '$2a$10$WGD6Kfpg7BLSE0t9sHnZ/.IUVTY/CED46eDMS9lmh.mv.Z1AZdtnG');
+insert into account (accountId, username, password) values (9998, 'testuser2', '$2a$10$nzS.H5YUKWWHl0M.2rgBHeocKve5yKnErey.HSDKBPKqdYCBN42Mi');
+insert into account (accountId, username, password) values (9997, 'testuser3', '$2a$10$j1s7QG6L.yFRNEvzdQ08buKU7VhRUjVgtE8/5OWu33KQz5Ead2CXK');
+insert into account (accountId, username, password) values (9996, 'testuser4', '$2a$10$zGhkOdxZyjm2YDmRIC5iSeEMLkxI9M/9yC62mRKXM2S8lru8pt2xa');
 
 insert into message values (9999, 9999,'test message 1',1669947792);
 insert into message values (9997, 9997,'test message 2',1669947792);
@@ -0,0 +1,70 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class CreateMessageRateLimitTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app with a burst of 2 messages per account and a slow refill,
+     * and create a new webClient for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {"--app.messages.rate-limit.burst=2", "--app.messages.rate-limit.permits-per-second=0.1"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending three http requests to POST localhost:8080/messages for user 9999, then one for user 9998
+     *
+     * Expected Response:
+     *  Status Code: 200 for the first two, 429 with a Retry-After header for the third, 200 for the other user
+     */
+    @Test
+    public void createMessageOverRateLimit() throws IOException, InterruptedException {
+        HttpResponse<String> response = null;
+        for (int i = 0; i < 3; i++) {
+            response = postMessage(9999);
+            if (i < 2)
+                Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        }
+        Assertions.assertEquals(429, response.statusCode(), "Expected Status Code 429 - Actual Code was: " + response.statusCode());
+        long retryAfter = Long.parseLong(response.headers().firstValue("Retry-After").orElse("0"));
+        Assertions.assertTrue(retryAfter >= 1, "Expected a positive Retry-After header, but was: " + retryAfter);
+
+        HttpResponse<String> otherAccountResponse = postMessage(9998);
+        Assertions.assertEquals(200, otherAccountResponse.statusCode(), "Expected Status Code 200 - Actual Code was: " + otherAccountResponse.statusCode());
+    }
+
+    private HttpResponse<String> postMessage(int postedBy) throws IOException, InterruptedException {
+        String json = "{\"postedBy\":" + postedBy + ",\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -66,6 +66,30 @@ public class CreateMessageTest {
         Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
     }
     
+    /**
+     * Sending three http requests to POST localhost:8080/messages with valid message credentials
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: messages with the consecutive ids 1, 2 and 3, taken from one block of the id sequence
+     */
+    @Test
+    public void createMessagesGetConsecutiveIds() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        ObjectMapper om = new ObjectMapper();
+        for (int messageId = 1; messageId <= 3; messageId++) {
+            HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+            Message actualResult = om.readValue(response.body(), Message.class);
+            Assertions.assertEquals(messageId, actualResult.getMessageId(), "Expected id " + messageId + ", Actual=" + actualResult);
+        }
+    }
+
     /**
      * Sending an http request to POST localhost:8080/messages with empty message
      * 
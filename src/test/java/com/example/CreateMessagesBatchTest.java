@@ -0,0 +1,125 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessageBatchResult;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CreateMessagesBatchTest {	
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with one valid message, one message with empty
+     * text and one message from a user id that doesnt exist in db
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of one result per message, in request order
+     */
+    @Test
+    public void createMessagesMixedResults() throws IOException, InterruptedException {
+        String json = "[{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792},"
+                + "{\"postedBy\":9999,\"messageText\": \"\",\"timePostedEpoch\": 1669947792},"
+                + "{\"postedBy\":5050,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}]";
+        HttpRequest postMessagesRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessagesRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<MessageBatchResult> actualResult = objectMapper.readValue(response.body(), new TypeReference<List<MessageBatchResult>>(){});
+        Assertions.assertEquals(3, actualResult.size(), "Expected 3 results, but got " + actualResult.size());
+        Assertions.assertEquals(200, actualResult.get(0).getStatus());
+        Message expectedMessage = new Message(1, 9999, "hello message", 1669947792L);
+        Assertions.assertEquals(expectedMessage, actualResult.get(0).getMessage(), "Expected="+expectedMessage + ", Actual="+actualResult.get(0).getMessage());
+        Assertions.assertEquals(400, actualResult.get(1).getStatus());
+        Assertions.assertNull(actualResult.get(1).getMessage());
+        Assertions.assertEquals(400, actualResult.get(2).getStatus());
+        Assertions.assertNull(actualResult.get(2).getMessage());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with a null item and items without postedBy
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of a 400 result for each of them
+     */
+    @Test
+    public void createMessagesNullItems() throws IOException, InterruptedException {
+        String json = "[null,{\"messageText\": \"hello message\"},{\"messageText\": \"hello again\"}]";
+        HttpRequest postMessagesRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessagesRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<MessageBatchResult> actualResult = objectMapper.readValue(response.body(), new TypeReference<List<MessageBatchResult>>(){});
+        Assertions.assertEquals(3, actualResult.size(), "Expected 3 results, but got " + actualResult.size());
+        for (MessageBatchResult result : actualResult) {
+            Assertions.assertEquals(400, result.getStatus());
+            Assertions.assertNull(result.getMessage());
+        }
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with more messages than app.messages.max-page-size
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void createMessagesTooMany() throws IOException, InterruptedException {
+        String item = "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        String json = "[" + String.join(",", Collections.nCopies(1001, item)) + "]";
+        HttpRequest postMessagesRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessagesRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
@@ -79,4 +79,29 @@ public class DeleteMessageByMessageIdTest {
         String actualResult = response.body().toString();
         Assertions.assertTrue(actualResult.equals(""), "Expected empty response body, but actually " + actualResult + ".");
     }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/9999, then DELETE localhost:8080/messages/9999, then GET
+     * localhost:8080/messages/9999 again (the first read populates the message cache)
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: empty
+     */
+    @Test
+    public void deleteMessageThenRetrieveReturnsEmpty() throws IOException, InterruptedException {
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .DELETE()
+                .build();
+        webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Assertions.assertTrue(response.body().isEmpty(), "Expected Empty Result, but Result was " + response.body());
+    }
 }
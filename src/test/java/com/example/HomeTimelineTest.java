@@ -0,0 +1,241 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+import com.example.service.TimelineService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class HomeTimelineTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app with accounts of 2 or more followers fanned out on read,
+     * and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--app.timeline.fan-out-on-read-threshold=2"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Account 9999 following account 9998, which then posts a message, then following and unfollowing account 9997,
+     * and finally account 9998 deleting its message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the home timeline of account 9999 holds the followed accounts' messages, newest first, and loses
+     *  them on unfollow and delete
+     */
+    @Test
+    public void fanOutOnWrite() throws IOException, InterruptedException {
+        Assertions.assertEquals("1", send("PUT", "accounts/9999/following/9998", null).body());
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947800}");
+        Message posted = new Message(1, 9998, "hello message", 1669947800L);
+        Assertions.assertEquals(List.of(posted), home("accounts/9999/home"));
+
+        Assertions.assertEquals("1", send("PUT", "accounts/9999/following/9997", null).body());
+        Message seeded = new Message(9997, 9997, "test message 2", 1669947792L);
+        Assertions.assertEquals(List.of(posted, seeded), home("accounts/9999/home"));
+
+        Assertions.assertEquals("1", send("DELETE", "accounts/9999/following/9997", null).body());
+        Assertions.assertEquals(List.of(posted), home("accounts/9999/home"));
+
+        send("DELETE", "messages/1", null);
+        Assertions.assertEquals(List.of(), home("accounts/9999/home"));
+    }
+
+    /**
+     * Accounts 9998 and 9999 following account 9997, which reaches the threshold of 2 followers, then posts a message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: both home timelines hold both of account 9997's messages once, merged at read time, and page by
+     *  limit with a Link header
+     */
+    @Test
+    public void fanOutOnRead() throws IOException, InterruptedException {
+        send("PUT", "accounts/9998/following/9997", null);
+        send("PUT", "accounts/9999/following/9997", null);
+        send("POST", "messages", "{\"postedBy\":9997,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947800}");
+
+        Message posted = new Message(1, 9997, "hello message", 1669947800L);
+        Message seeded = new Message(9997, 9997, "test message 2", 1669947792L);
+        Assertions.assertEquals(List.of(posted, seeded), home("accounts/9998/home"));
+        Assertions.assertEquals(List.of(posted, seeded), home("accounts/9999/home"));
+
+        HttpResponse<String> firstPage = send("GET", "accounts/9998/home?limit=1", null);
+        Assertions.assertEquals(List.of(posted), objectMapper.readValue(firstPage.body(), new TypeReference<List<Message>>() {}));
+        String next = firstPage.headers().firstValue("Link").orElseThrow();
+        Assertions.assertTrue(next.contains("beforeTime=1669947800&beforeId=1&limit=1"), next);
+        Assertions.assertEquals(List.of(seeded),
+                home("accounts/9998/home?beforeTime=1669947800&beforeId=1&limit=1"));
+    }
+
+    /**
+     * Following oneself, following an account that does not exist, and repeating a follow or unfollow
+     *
+     * Expected Response:
+     *  Status Code: 400 for following oneself or an unknown account, and 200 with an empty body for repeats
+     */
+    @Test
+    public void invalidFollows() throws IOException, InterruptedException {
+        Assertions.assertEquals(400, send("PUT", "accounts/9999/following/9999", null).statusCode());
+        Assertions.assertEquals(400, send("PUT", "accounts/9999/following/1", null).statusCode());
+
+        Assertions.assertEquals("1", send("PUT", "accounts/9999/following/9998", null).body());
+        HttpResponse<String> repeated = send("PUT", "accounts/9999/following/9998", null);
+        Assertions.assertEquals(200, repeated.statusCode());
+        Assertions.assertEquals("", repeated.body());
+
+        Assertions.assertEquals("1", send("DELETE", "accounts/9999/following/9998", null).body());
+        Assertions.assertEquals("", send("DELETE", "accounts/9999/following/9998", null).body());
+    }
+
+    /**
+     * Account 9999 following account 9998, which posts three messages, then the fan-out and the backfill copying the
+     * same messages to account 9999's home timeline again, as when a message is posted while the follow is added
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a full page of three distinct messages; the repeated copies insert no rows
+     */
+    @Test
+    public void repeatedCopiesAreSkipped() throws IOException, InterruptedException {
+        Assertions.assertEquals("1", send("PUT", "accounts/9999/following/9998", null).body());
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"first\",\"timePostedEpoch\": 1669947800}");
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"second\",\"timePostedEpoch\": 1669947801}");
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"third\",\"timePostedEpoch\": 1669947802}");
+
+        MessageRepository messageRepository = app.getBean(MessageRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(app.getBean(PlatformTransactionManager.class));
+        Assertions.assertEquals(0, messageRepository.fanOut(3));
+        Integer backfilled = transactionTemplate.execute(status -> messageRepository.backfillTimeline(9999, 9998, 100));
+        Assertions.assertEquals(0, backfilled);
+
+        List<Message> page = home("accounts/9999/home?limit=3");
+        Assertions.assertEquals(List.of(
+                new Message(3, 9998, "third", 1669947802L),
+                new Message(2, 9998, "second", 1669947801L),
+                new Message(1, 9998, "first", 1669947800L)), page);
+    }
+
+    /**
+     * Account 9998, with no followers yet, posting messages while account 9999 follows it, then posting once more
+     * after the follow has returned
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the home timeline of account 9999 holds the message posted after the follow; a follower count of
+     *  0 read while the follow was in flight is not left in the cache
+     */
+    @Test
+    public void followWhilePosting() throws Exception {
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"before\",\"timePostedEpoch\": 1669947800}");
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService poster = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> posting = poster.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10; i++)
+                    send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"during " + i + "\",\"timePostedEpoch\": 1669947801}");
+                return null;
+            });
+            start.countDown();
+            Assertions.assertEquals("1", send("PUT", "accounts/9999/following/9998", null).body());
+            posting.get(10, TimeUnit.SECONDS);
+        } finally {
+            poster.shutdownNow();
+        }
+
+        Message after = objectMapper.readValue(send("POST", "messages",
+                "{\"postedBy\":9998,\"messageText\": \"after\",\"timePostedEpoch\": 1669947802}").body(), Message.class);
+        Assertions.assertEquals(after, home("accounts/9999/home?limit=1").get(0));
+    }
+
+    /**
+     * Account 9998, with no followers yet, posting a message, then account 9999 following it and account 9998 posting
+     * again right after the follow commits, before the follow's own commit callbacks have run
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the home timeline of account 9999 holds both messages; the follower count of 0 cached by the
+     *  first post is not used for the second
+     */
+    @Test
+    public void postRightAfterFollowCommits() throws IOException, InterruptedException {
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"before\",\"timePostedEpoch\": 1669947800}");
+
+        TimelineService timelineService = app.getBean(TimelineService.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(app.getBean(PlatformTransactionManager.class));
+        transactionTemplate.executeWithoutResult(status -> {
+            // Registered before follow's own synchronizations, so it runs first
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"after\",\"timePostedEpoch\": 1669947801}");
+                    } catch (IOException | InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            Assertions.assertEquals(1, timelineService.follow(9999, 9998));
+        });
+
+        Assertions.assertEquals(List.of(
+                new Message(2, 9998, "after", 1669947801L),
+                new Message(1, 9998, "before", 1669947800L)), home("accounts/9999/home"));
+    }
+
+    private List<Message> home(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", path, null);
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/" + path))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
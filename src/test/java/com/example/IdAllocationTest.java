@@ -0,0 +1,116 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessageBatchResult;
+import com.example.entity.Account;
+import com.example.repository.AccountRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class IdAllocationTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app without the posting rate limit, and create a new
+     * webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--app.messages.rate-limit.enabled=false"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Creating 10,500 messages through POST localhost:8080/messages/batch, past the ids 9996 to 9999 of the test
+     * messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message is created, none with the id of a test message
+     */
+    @Test
+    public void createMessagesPastTestIds() throws IOException, InterruptedException {
+        String item = "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        String json = "[" + String.join(",", Collections.nCopies(1000, item)) + "]";
+        List<Integer> messageIds = new ArrayList<>();
+        for (int batch = 0; batch < 10; batch++)
+            messageIds.addAll(createMessages(json));
+        for (int i = 0; i < 500; i++) {
+            HttpResponse<String> response = send("POST", "messages", item);
+            Assertions.assertEquals(200, response.statusCode(), response.body());
+        }
+
+        Assertions.assertEquals(10000, messageIds.size());
+        for (int testId = 9996; testId <= 9999; testId++)
+            Assertions.assertFalse(messageIds.contains(testId), "Message ID " + testId + " was handed out again");
+        Assertions.assertEquals(200, send("GET", "messages/9999", null).statusCode());
+        Assertions.assertTrue(send("GET", "messages/9999", null).body().contains("test message 1"));
+    }
+
+    /**
+     * Creating 10,500 accounts, past the ids 9996 to 9999 of the test accounts
+     *
+     * Expected Response:
+     *  Every account is created, none with the id of a test account
+     */
+    @Test
+    public void createAccountsPastTestIds() {
+        AccountRepository accountRepository = app.getBean(AccountRepository.class);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 10500; i++)
+            accounts.add(new Account("user" + i, "password"));
+
+        List<Integer> accountIds = accountRepository.saveAll(accounts).stream().map(Account::getAccountId).toList();
+
+        Assertions.assertEquals(10500, accountIds.stream().distinct().count());
+        for (int testId = 9996; testId <= 9999; testId++)
+            Assertions.assertFalse(accountIds.contains(testId), "Account ID " + testId + " was handed out again");
+    }
+
+    private List<Integer> createMessages(String json) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "messages/batch", json);
+        Assertions.assertEquals(200, response.statusCode());
+        List<Integer> messageIds = new ArrayList<>();
+        for (MessageBatchResult result : objectMapper.readValue(response.body(), new TypeReference<List<MessageBatchResult>>(){})) {
+            Assertions.assertEquals(200, result.getStatus(), result.getError());
+            messageIds.add(result.getMessage().getMessageId());
+        }
+        return messageIds;
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/" + path))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,196 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class IdempotencyKeyTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending the same http request to POST localhost:8080/messages twice with the same Idempotency-Key
+     *
+     * Expected Response:
+     *  Status Code: 200 for both
+     *  Response Body: the same Message both times, and only one new message stored for the account
+     */
+    @Test
+    public void createMessageRetriedWithSameKey() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        HttpResponse<String> first = post("messages", json, "message-key-1");
+        HttpResponse<String> retry = post("messages", json, "message-key-1");
+
+        Assertions.assertEquals(200, first.statusCode(), "Expected Status Code 200 - Actual Code was: " + first.statusCode());
+        Assertions.assertEquals(200, retry.statusCode(), "Expected Status Code 200 - Actual Code was: " + retry.statusCode());
+        Message expectedResult = new Message(1, 9999, "hello message", 1669947792L);
+        Assertions.assertEquals(expectedResult, objectMapper.readValue(first.body(), Message.class));
+        Assertions.assertEquals(expectedResult, objectMapper.readValue(retry.body(), Message.class));
+
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages"))
+                .build();
+        HttpResponse<String> getResponse = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        Message[] messages = objectMapper.readValue(getResponse.body(), Message[].class);
+        Assertions.assertEquals(2, messages.length, "Expected the seed message and one new message");
+    }
+
+    /**
+     * Sending the same http request to POST localhost:8080/messages twice with the same Idempotency-Key, while
+     * recording the message's tags fails after the message is stored
+     *
+     * Expected Response:
+     *  Status Code: 200 for both
+     *  Response Body: the same Message both times, and only one new message stored for the account
+     */
+    @Test
+    public void createMessageRetriedAfterTagsFailed() throws IOException, InterruptedException {
+        app.getBean(JdbcTemplate.class).execute("drop table message_tag");
+        String json = "{\"postedBy\":9999,\"messageText\": \"hello #message\",\"timePostedEpoch\": 1669947792}";
+        HttpResponse<String> first = post("messages", json, "message-key-1");
+        HttpResponse<String> retry = post("messages", json, "message-key-1");
+
+        Assertions.assertEquals(200, first.statusCode(), "Expected Status Code 200 - Actual Code was: " + first.statusCode());
+        Assertions.assertEquals(200, retry.statusCode(), "Expected Status Code 200 - Actual Code was: " + retry.statusCode());
+        Message expectedResult = new Message(1, 9999, "hello #message", 1669947792L);
+        Assertions.assertEquals(expectedResult, objectMapper.readValue(first.body(), Message.class));
+        Assertions.assertEquals(expectedResult, objectMapper.readValue(retry.body(), Message.class));
+
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages"))
+                .build();
+        HttpResponse<String> getResponse = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        Message[] messages = objectMapper.readValue(getResponse.body(), Message[].class);
+        Assertions.assertEquals(2, messages.length, "Expected the seed message and one new message");
+    }
+
+    /**
+     * Sending the same http request to POST localhost:8080/register twice with the same Idempotency-Key
+     *
+     * Expected Response:
+     *  Status Code: 200 for both, rather than 409 for the retry
+     *  Response Body: the same Account both times
+     */
+    @Test
+    public void registerRetriedWithSameKey() throws IOException, InterruptedException {
+        String json = "{\"username\": \"idempotentuser\", \"password\": \"password\"}";
+        HttpResponse<String> first = post("register", json, "register-key-1");
+        HttpResponse<String> retry = post("register", json, "register-key-1");
+
+        Assertions.assertEquals(200, first.statusCode(), "Expected Status Code 200 - Actual Code was: " + first.statusCode());
+        Assertions.assertEquals(200, retry.statusCode(), "Expected Status Code 200 - Actual Code was: " + retry.statusCode());
+        Assertions.assertEquals(objectMapper.readValue(first.body(), Account.class),
+                objectMapper.readValue(retry.body(), Account.class));
+
+        HttpResponse<String> withoutKey = post("register", json, null);
+        Assertions.assertEquals(409, withoutKey.statusCode(), "Expected Status Code 409 - Actual Code was: " + withoutKey.statusCode());
+    }
+
+    /**
+     * Reusing an Idempotency-Key for POST localhost:8080/messages with a different message
+     *
+     * Expected Response:
+     *  Status Code: 422 for the different message, and no second message stored
+     */
+    @Test
+    public void createMessageKeyReusedForDifferentMessage() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        String other = "{\"postedBy\":9999,\"messageText\": \"other message\",\"timePostedEpoch\": 1669947792}";
+        HttpResponse<String> first = post("messages", json, "message-key-1");
+        HttpResponse<String> reused = post("messages", other, "message-key-1");
+
+        Assertions.assertEquals(200, first.statusCode(), "Expected Status Code 200 - Actual Code was: " + first.statusCode());
+        Assertions.assertEquals(422, reused.statusCode(), "Expected Status Code 422 - Actual Code was: " + reused.statusCode());
+
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages"))
+                .build();
+        HttpResponse<String> getResponse = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        Message[] messages = objectMapper.readValue(getResponse.body(), Message[].class);
+        Assertions.assertEquals(2, messages.length, "Expected the seed message and one new message");
+    }
+
+    /**
+     * Two accounts sending POST localhost:8080/messages with the same Idempotency-Key
+     *
+     * Expected Response:
+     *  Status Code: 200 for both, each with its own new Message
+     */
+    @Test
+    public void createMessageSameKeyDifferentAccounts() throws IOException, InterruptedException {
+        HttpResponse<String> first = post("messages",
+                "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}", "shared-key");
+        HttpResponse<String> second = post("messages",
+                "{\"postedBy\":9998,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}", "shared-key");
+
+        Assertions.assertEquals(200, first.statusCode(), "Expected Status Code 200 - Actual Code was: " + first.statusCode());
+        Assertions.assertEquals(200, second.statusCode(), "Expected Status Code 200 - Actual Code was: " + second.statusCode());
+        Message firstMessage = objectMapper.readValue(first.body(), Message.class);
+        Message secondMessage = objectMapper.readValue(second.body(), Message.class);
+        Assertions.assertEquals(9999, firstMessage.getPostedBy());
+        Assertions.assertEquals(9998, secondMessage.getPostedBy());
+        Assertions.assertNotEquals(firstMessage.getMessageId(), secondMessage.getMessageId());
+    }
+
+    /**
+     * Reusing an Idempotency-Key for POST localhost:8080/register with a different password
+     *
+     * Expected Response:
+     *  Status Code: 422 rather than the Account registered with the first password
+     */
+    @Test
+    public void registerKeyReusedWithDifferentPassword() throws IOException, InterruptedException {
+        HttpResponse<String> first = post("register",
+                "{\"username\": \"idempotentuser\", \"password\": \"password\"}", "register-key-1");
+        HttpResponse<String> reused = post("register",
+                "{\"username\": \"idempotentuser\", \"password\": \"other password\"}", "register-key-1");
+
+        Assertions.assertEquals(200, first.statusCode(), "Expected Status Code 200 - Actual Code was: " + first.statusCode());
+        Assertions.assertEquals(422, reused.statusCode(), "Expected Status Code 422 - Actual Code was: " + reused.statusCode());
+    }
+
+    private HttpResponse<String> post(String path, String json, String idempotencyKey) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json");
+        if (idempotencyKey != null)
+            request.header("Idempotency-Key", idempotencyKey);
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class LikesTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient
+     * for interacting locally on the web. Like counts are flushed every 100ms.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {"--app.likes.flush-interval=100ms"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Liking and unliking a message, including repeats and unknown accounts and messages
+     *
+     * Expected Response:
+     *  Status Code: 200, or 400 for an unknown account or message
+     *  Response Body: 1 for a like or unlike, an empty body for repeats; GET localhost:8080/messages/{messageId}/likes
+     *  returns the number of likes, before and after they are flushed, without rereading the flushed sum
+     */
+    @Test
+    public void likeAndUnlike() throws IOException, InterruptedException {
+        Assertions.assertEquals("1", send("PUT", "accounts/9999/likes/9999").body());
+        Assertions.assertEquals("1", send("PUT", "accounts/9998/likes/9999").body());
+        HttpResponse<String> repeated = send("PUT", "accounts/9999/likes/9999");
+        Assertions.assertEquals(200, repeated.statusCode());
+        Assertions.assertEquals("", repeated.body());
+        Assertions.assertEquals(400, send("PUT", "accounts/1/likes/9999").statusCode());
+        Assertions.assertEquals(400, send("PUT", "accounts/9999/likes/1").statusCode());
+        Assertions.assertEquals("2", send("GET", "messages/9999/likes").body());
+
+        Assertions.assertEquals("1", send("DELETE", "accounts/9999/likes/9999").body());
+        Assertions.assertEquals("", send("DELETE", "accounts/9999/likes/9999").body());
+        Assertions.assertEquals("1", send("GET", "messages/9999/likes").body());
+        Assertions.assertEquals("0", send("GET", "messages/9997/likes").body());
+
+        Thread.sleep(500);
+        JdbcTemplate jdbcTemplate = app.getBean(JdbcTemplate.class);
+        Assertions.assertEquals(1L, jdbcTemplate.queryForObject(
+                "select sum(likes) from message_like_count where messageId = 9999", Long.class));
+        Assertions.assertEquals("1", send("GET", "messages/9999/likes").body());
+
+        // The flushed sum is cached, and kept up to date by the flush, rather than read on every count
+        jdbcTemplate.update("update message_like_count set likes = likes + 100 where messageId = 9999");
+        Assertions.assertEquals("1", send("GET", "messages/9999/likes").body());
+    }
+
+    /**
+     * Many accounts liking the same message at once, then deleting the message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: GET localhost:8080/messages/{messageId}/likes counts every like, and 0 once the message is deleted
+     */
+    @Test
+    public void concurrentLikes() throws IOException, InterruptedException {
+        int accounts = 20;
+        for (int i = 0; i < accounts; i++)
+            send("POST", "register", "{\"username\": \"liker" + i + "\", \"password\": \"password\"}");
+
+        List<CompletableFuture<HttpResponse<String>>> likes = new ArrayList<>();
+        for (int accountId = 1; accountId <= accounts; accountId++) {
+            HttpRequest request = request("PUT", "accounts/" + accountId + "/likes/9999");
+            likes.add(webClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> like : likes)
+            Assertions.assertEquals("1", like.join().body());
+        Assertions.assertEquals(String.valueOf(accounts), send("GET", "messages/9999/likes").body());
+
+        Thread.sleep(500);
+        Assertions.assertEquals(String.valueOf(accounts), send("GET", "messages/9999/likes").body());
+
+        send("DELETE", "messages/9999");
+        Assertions.assertEquals("0", send("GET", "messages/9999/likes").body());
+    }
+
+    private HttpResponse<String> send(String method, String path) throws IOException, InterruptedException {
+        return webClient.send(request(method, path), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/" + path))
+                .method(method, HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String method, String path) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/" + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+}
@@ -0,0 +1,245 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.example.service.MessageFeed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MessageEventsTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Subscribing to GET localhost:8080/messages/events?accountId=9999, then creating a message for account 9998 and
+     * creating, updating and deleting a message for account 9999
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Events: created, updated and deleted for account 9999's message only, with ids 2, 3 and 4
+     */
+    @Test
+    public void accountEventsInOrder() throws IOException, InterruptedException {
+        Iterator<String> events = subscribe("messages/events?accountId=9999", null);
+
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"other account\"}");
+        send("POST", "messages", "{\"postedBy\":9999,\"messageText\": \"hello message\"}");
+        send("PATCH", "messages/2", "{\"messageText\": \"updated message\"}");
+        send("DELETE", "messages/2", null);
+
+        Assertions.assertEquals(List.of("event:created", "id:2"), nextEvent(events).subList(0, 2));
+        Assertions.assertEquals(List.of("event:updated", "id:3"), nextEvent(events).subList(0, 2));
+        List<String> deleted = nextEvent(events);
+        Assertions.assertEquals(List.of("event:deleted", "id:4"), deleted.subList(0, 2));
+        Message expectedResult = new Message(2, 9999, "updated message", null);
+        Assertions.assertEquals(expectedResult, objectMapper.readValue(deleted.get(2).substring("data:".length()), Message.class));
+    }
+
+    /**
+     * Subscribing to GET localhost:8080/messages/events with a Last-Event-ID header, after two messages were created
+     *
+     * Expected Response:
+     *  Events: the event after Last-Event-ID 1, or a reset event for a Last-Event-ID that was never sent
+     */
+    @Test
+    public void resumeFromLastEventId() throws IOException, InterruptedException {
+        send("POST", "messages", "{\"postedBy\":9999,\"messageText\": \"first\"}");
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"second\"}");
+
+        List<String> resumed = nextEvent(subscribe("messages/events", "1"));
+        Assertions.assertEquals(List.of("event:created", "id:2"), resumed.subList(0, 2));
+        Assertions.assertTrue(resumed.get(2).contains("\"second\""), "Expected the second message, was: " + resumed);
+
+        List<String> reset = nextEvent(subscribe("messages/events", "5000"));
+        Assertions.assertEquals(List.of("event:reset", "id:2"), reset.subList(0, 2));
+    }
+
+    /**
+     * Opening a subscription to GET localhost:8080/messages/events that never reads, and another that does, then
+     * creating messages until the first one's connection is full
+     *
+     * Expected Result:
+     *  The subscription that does not read is dropped once a write to it takes longer than app.feed.write-timeout,
+     *  and the other subscription keeps receiving events
+     */
+    @Test
+    public void slowSubscriberIsDropped() throws Exception {
+        SpringApplication.exit(app);
+        app = SpringApplication.run(SocialMediaApp.class, "--app.messages.rate-limit.enabled=false",
+                "--app.feed.write-timeout=2s");
+        MessageFeed feed = app.getBean(MessageFeed.class);
+
+        Socket slow = new Socket();
+        slow.setReceiveBufferSize(1024);
+        slow.connect(new InetSocketAddress("localhost", 8080));
+        slow.getOutputStream().write(("GET /messages/events HTTP/1.1\r\nHost: localhost\r\n" +
+                "Accept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        Iterator<String> events = subscribe("messages/events", null);
+        AtomicReference<String> lastData = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (events.hasNext()) {
+                String line = events.next();
+                if (line.startsWith("data:"))
+                    lastData.set(line);
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+        while (feed.subscriberCount() < 2)
+            Thread.sleep(10);
+
+        String text = "x".repeat(255);
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++)
+            batch.append(i == 0 ? "" : ",").append("{\"postedBy\":9999,\"messageText\": \"").append(text).append("\"}");
+        String json = batch.append("]").toString();
+        for (int i = 0; i < 50 && feed.subscriberCount() > 1; i++) {
+            send("POST", "messages/batch", json);
+            Thread.sleep(200);
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (feed.subscriberCount() > 1 && System.currentTimeMillis() < deadline)
+            Thread.sleep(100);
+        Assertions.assertEquals(1, feed.subscriberCount(), "Expected the subscription that does not read to be dropped");
+
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"after the slow subscriber\"}");
+        deadline = System.currentTimeMillis() + 10_000;
+        while ((lastData.get() == null || !lastData.get().contains("after the slow subscriber"))
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+        Assertions.assertTrue(lastData.get().contains("after the slow subscriber"),
+                "Expected the reading subscription to receive the last message, was: " + lastData.get());
+        slow.close();
+    }
+
+    /**
+     * Opening three subscriptions to GET localhost:8080/messages/events that never read, with two writer threads, then
+     * creating messages until their connections are full
+     *
+     * Expected Result:
+     *  Every subscription is dropped, and no more than two writer threads are ever alive, however many writes stall
+     */
+    @Test
+    public void stalledWritesUseBoundedWriterThreads() throws Exception {
+        SpringApplication.exit(app);
+        app = SpringApplication.run(SocialMediaApp.class, "--app.messages.rate-limit.enabled=false",
+                "--app.feed.write-timeout=1s", "--app.feed.write-threads=2");
+        MessageFeed feed = app.getBean(MessageFeed.class);
+
+        List<Socket> slow = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Socket socket = new Socket();
+            socket.setReceiveBufferSize(1024);
+            socket.connect(new InetSocketAddress("localhost", 8080));
+            socket.getOutputStream().write(("GET /messages/events HTTP/1.1\r\nHost: localhost\r\n" +
+                    "Accept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            slow.add(socket);
+        }
+        while (feed.subscriberCount() < 3)
+            Thread.sleep(10);
+
+        String text = "x".repeat(255);
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++)
+            batch.append(i == 0 ? "" : ",").append("{\"postedBy\":9999,\"messageText\": \"").append(text).append("\"}");
+        String json = batch.append("]").toString();
+        int maxWriters = 0;
+        for (int i = 0; i < 50 && feed.subscriberCount() > 0; i++) {
+            send("POST", "messages/batch", json);
+            Thread.sleep(200);
+            maxWriters = Math.max(maxWriters, writerThreads());
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (feed.subscriberCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            maxWriters = Math.max(maxWriters, writerThreads());
+        }
+        Assertions.assertEquals(0, feed.subscriberCount(), "Expected every subscription that does not read to be dropped");
+        Assertions.assertTrue(maxWriters <= 2, "Expected at most 2 writer threads - Actual was: " + maxWriters);
+        for (Socket socket : slow)
+            socket.close();
+    }
+
+    private static int writerThreads() {
+        return (int) Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("message-feed-writer"))
+                .count();
+    }
+
+    private Iterator<String> subscribe(String path, String lastEventId) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/" + path))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null)
+            request.header("Last-Event-ID", lastEventId);
+        HttpResponse<Stream<String>> response = webClient.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        return response.body().iterator();
+    }
+
+    /**
+     * Returns the next event's non-empty, non-comment lines.
+     */
+    private List<String> nextEvent(Iterator<String> lines) {
+        List<String> event = new ArrayList<>();
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.isEmpty() && !event.isEmpty())
+                return event;
+            if (!line.isEmpty() && !line.startsWith(":"))
+                event.add(line);
+        }
+        return event;
+    }
+
+    private void send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/" + path))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+    }
+}
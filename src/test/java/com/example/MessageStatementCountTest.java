@@ -0,0 +1,130 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class MessageStatementCountTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    Statistics statistics;
+
+    /**
+     * Before every test, reset the database, restart the app with Hibernate statistics enabled, and create a new
+     * webClient for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {"--spring.jpa.properties.hibernate.generate_statistics=true"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        Thread.sleep(500);
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending http requests to PATCH localhost:8080/messages/9999 (message exists) and PATCH
+     * localhost:8080/messages/5050 (message does not exist)
+     *
+     * Expected: each request runs exactly one SQL statement
+     */
+    @Test
+    public void updateMessageRunsOneStatement() throws IOException, InterruptedException {
+        String json = "{\"messageText\": \"text changed\"}";
+        for (String messageId : new String[] {"9999", "5050"}) {
+            HttpRequest patchRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(json))
+                    .header("Content-Type", "application/json")
+                    .build();
+            statistics.clear();
+            webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString());
+            long statements = statistics.getPrepareStatementCount();
+            Assertions.assertEquals(1, statements, "Expected 1 statement for message " + messageId + " - Actual was: " + statements);
+        }
+    }
+
+    /**
+     * Sending http requests to DELETE localhost:8080/messages/9999 (message exists) and DELETE
+     * localhost:8080/messages/5050 (message does not exist)
+     *
+     * Expected: each request runs exactly one SQL statement
+     */
+    @Test
+    public void deleteMessageRunsOneStatement() throws IOException, InterruptedException {
+        for (String messageId : new String[] {"9999", "5050"}) {
+            HttpRequest deleteRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                    .DELETE()
+                    .build();
+            statistics.clear();
+            webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString());
+            long statements = statistics.getPrepareStatementCount();
+            Assertions.assertEquals(1, statements, "Expected 1 statement for message " + messageId + " - Actual was: " + statements);
+        }
+    }
+
+    /**
+     * Sending two http requests each to GET localhost:8080/messages/9999 (message exists) and GET
+     * localhost:8080/messages/5050 (message does not exist)
+     *
+     * Expected: the existing message is read once and then served from the cache, while the missing one is read on
+     * every request, since misses are not cached
+     */
+    @Test
+    public void getMessageCachesOnlyExistingMessages() throws IOException, InterruptedException {
+        for (String messageId : new String[] {"9999", "5050"}) {
+            HttpRequest getRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                    .build();
+            statistics.clear();
+            webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+            webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+            long statements = statistics.getPrepareStatementCount();
+            long expected = messageId.equals("9999") ? 1 : 2;
+            Assertions.assertEquals(expected, statements, "Expected " + expected + " statements for message " + messageId + " - Actual was: " + statements);
+        }
+    }
+
+    /**
+     * Sending two http requests to POST localhost:8080/messages for user 9999
+     *
+     * Expected: the second request runs only the INSERT, because the account is already known to exist and the
+     * message id comes from an already reserved block
+     */
+    @Test
+    public void createMessageForKnownAccountRunsOneStatement() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        statistics.clear();
+        webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        long statements = statistics.getPrepareStatementCount();
+        Assertions.assertEquals(1, statements, "Expected 1 statement - Actual was: " + statements);
+    }
+}
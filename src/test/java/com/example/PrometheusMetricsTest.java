@@ -0,0 +1,73 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class PrometheusMetricsTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient for interacting locally on
+     * the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/actuator/prometheus after a successful and a failed request
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: endpoint, service, repository, connection pool and exception metrics in Prometheus text format
+     */
+    @Test
+    public void scrapeAfterRequests() throws IOException, InterruptedException {
+        HttpRequest getMessages = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .build();
+        Assertions.assertEquals(200, webClient.send(getMessages, HttpResponse.BodyHandlers.ofString()).statusCode());
+        HttpRequest postMessage = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\": \"\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(400, webClient.send(postMessage, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest scrape = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/actuator/prometheus"))
+                .build();
+        HttpResponse<String> response = webClient.send(scrape, HttpResponse.BodyHandlers.ofString());
+        String body = response.body();
+
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertTrue(body.contains("http_server_requests_seconds_count{") && body.contains("uri=\"/messages/{messageId}\""), "Expected endpoint timers");
+        Assertions.assertTrue(body.contains("app_service_calls_seconds_count{") && body.contains("method=\"getMessageById\""), "Expected service timers");
+        Assertions.assertTrue(body.contains("spring_data_repository_invocations_seconds_count{"), "Expected repository timers");
+        Assertions.assertTrue(body.contains("hikaricp_connections_active{") && body.contains("hikaricp_connections_pending{")
+                && body.contains("hikaricp_connections_acquire_seconds_count{"), "Expected connection pool metrics");
+        Assertions.assertTrue(body.contains("app_exceptions_total{exception=\"InvalidMessageTextException\",} 1.0"), "Expected the exception counter");
+    }
+}
@@ -0,0 +1,29 @@
+package com.example;
+
+import java.net.http.HttpClient;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.boot.SpringApplication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs the tests for creating messages against the reactive (WebFlux + R2DBC) implementation of the endpoints.
+ */
+public class ReactiveCreateMessageTest extends CreateMessageTest {
+
+    /**
+     * Before every test, reset the database, restart the app as a reactive web application, and create a new
+     * webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    @Override
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--spring.main.web-application-type=reactive"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+}
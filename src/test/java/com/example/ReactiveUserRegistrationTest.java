@@ -0,0 +1,42 @@
+package com.example;
+
+import java.net.http.HttpClient;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs the tests for registering accounts against the reactive (WebFlux + R2DBC) implementation of the endpoints.
+ */
+public class ReactiveUserRegistrationTest extends UserRegistrationTest {
+
+    /**
+     * Before every test, reset the database, restart the app as a reactive web application, and create a new
+     * webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    @Override
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--spring.main.web-application-type=reactive"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    /**
+     * The reactive endpoints are served by Reactor Netty, not by Tomcat through the Servlet API adapter
+     */
+    @Test
+    public void servedByNetty() {
+        Object webServer = ((WebServerApplicationContext) app).getWebServer();
+        Assertions.assertInstanceOf(NettyWebServer.class, webServer, "Expected Netty - Actual server was: " + webServer);
+    }
+}
@@ -83,4 +83,90 @@ public class RetrieveAllMessagesForUserTest {
         List<Message> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
         Assertions.assertTrue(actualResult.isEmpty(), "Expected Empty Result, but Result was not Empty");
     }
+
+    /**
+     * Posting three messages for user 9998, then sending http requests to GET
+     * localhost:8080/accounts/9998/messages?limit=2 and following the returned cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the two newest messages, then of the oldest message
+     *  Link Header: present on the first page only
+     */
+    @Test
+    public void getAllMessagesFromUserPaginatedNewestFirst() throws IOException, InterruptedException {
+        for (long timePosted : new long[] {1669947792L, 1669947794L, 1669947793L}) {
+            String json = "{\"postedBy\":9998,\"messageText\": \"posted at " + timePosted + "\",\"timePostedEpoch\": " + timePosted + "}";
+            HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages"))
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .header("Content-Type", "application/json")
+                    .build();
+            webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        }
+
+        HttpRequest firstRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9998/messages?limit=2"))
+                .build();
+        HttpResponse<String> firstResponse = webClient.send(firstRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, firstResponse.statusCode(), "Expected Status Code 200 - Actual Code was: " + firstResponse.statusCode());
+        List<Message> firstPage = objectMapper.readValue(firstResponse.body(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(2, firstPage.size(), "Expected 2 messages, but got " + firstPage);
+        Assertions.assertEquals(1669947794L, firstPage.get(0).getTimePostedEpoch());
+        Assertions.assertEquals(1669947793L, firstPage.get(1).getTimePostedEpoch());
+        String link = firstResponse.headers().firstValue("Link").orElse("");
+        Assertions.assertTrue(link.contains("beforeTime=1669947793"), "Expected a next-page Link header, but was: " + link);
+
+        HttpRequest secondRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9998/messages?limit=2&beforeTime=1669947793&beforeId=" + firstPage.get(1).getMessageId()))
+                .build();
+        HttpResponse<String> secondResponse = webClient.send(secondRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, secondResponse.statusCode(), "Expected Status Code 200 - Actual Code was: " + secondResponse.statusCode());
+        List<Message> secondPage = objectMapper.readValue(secondResponse.body(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(1, secondPage.size(), "Expected 1 message, but got " + secondPage);
+        Assertions.assertEquals(1669947792L, secondPage.get(0).getTimePostedEpoch());
+        Assertions.assertTrue(secondResponse.headers().firstValue("Link").isEmpty(), "Expected no Link header on the last page");
+    }
+
+    /**
+     * Posting one message with and three without a timePostedEpoch for user 9998, then sending http requests to GET
+     * localhost:8080/accounts/9998/messages?limit=2 and following the Link headers
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message exactly once, the one with a timePostedEpoch first and the others newest first
+     *  Link Header: present until the last page, including after a page ending on a message without timePostedEpoch
+     */
+    @Test
+    public void getAllMessagesFromUserPaginatedWithoutTimePosted() throws IOException, InterruptedException {
+        List<String> jsons = List.of(
+                "{\"postedBy\":9998,\"messageText\": \"timed\",\"timePostedEpoch\": 1669947792}",
+                "{\"postedBy\":9998,\"messageText\": \"untimed 1\"}",
+                "{\"postedBy\":9998,\"messageText\": \"untimed 2\"}",
+                "{\"postedBy\":9998,\"messageText\": \"untimed 3\"}");
+        for (String json : jsons) {
+            HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages"))
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .header("Content-Type", "application/json")
+                    .build();
+            webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        }
+
+        List<String> texts = new ArrayList<>();
+        String next = "http://localhost:8080/accounts/9998/messages?limit=2";
+        int pages = 0;
+        while (next != null) {
+            HttpResponse<String> response = webClient.send(HttpRequest.newBuilder().uri(URI.create(next)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+            for (Message message : objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){}))
+                texts.add(message.getMessageText());
+            next = response.headers().firstValue("Link")
+                    .map(link -> link.substring(link.indexOf('<') + 1, link.indexOf('>')))
+                    .orElse(null);
+            Assertions.assertTrue(++pages <= 2, "Expected 2 pages, but got more: " + texts);
+        }
+        Assertions.assertEquals(List.of("timed", "untimed 3", "untimed 2", "untimed 1"), texts);
+    }
 }
@@ -59,4 +59,66 @@ public class RetrieveAllMessagesTest {
         List<Message> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
         Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
     }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?limit=2, then following the returned cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the first two messages, then of the remaining message
+     *  Link Header: present on the first page only
+     */
+    @Test
+    public void getAllMessagesPaginated() throws IOException, InterruptedException {
+        HttpRequest firstRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?limit=2"))
+                .build();
+        HttpResponse<String> firstResponse = webClient.send(firstRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, firstResponse.statusCode(), "Expected Status Code 200 - Actual Code was: " + firstResponse.statusCode());
+        List<Message> expectedFirstPage = new ArrayList<Message>();
+        expectedFirstPage.add(new Message(9996, 9996, "test message 3", 1669947792L));
+        expectedFirstPage.add(new Message(9997, 9997, "test message 2", 1669947792L));
+        List<Message> actualFirstPage = objectMapper.readValue(firstResponse.body(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(expectedFirstPage, actualFirstPage, "Expected="+expectedFirstPage + ", Actual="+actualFirstPage);
+        String link = firstResponse.headers().firstValue("Link").orElse("");
+        Assertions.assertTrue(link.contains("after=9997"), "Expected a next-page Link header, but was: " + link);
+
+        HttpRequest secondRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?after=9997&limit=2"))
+                .build();
+        HttpResponse<String> secondResponse = webClient.send(secondRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, secondResponse.statusCode(), "Expected Status Code 200 - Actual Code was: " + secondResponse.statusCode());
+        List<Message> expectedSecondPage = new ArrayList<Message>();
+        expectedSecondPage.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        List<Message> actualSecondPage = objectMapper.readValue(secondResponse.body(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(expectedSecondPage, actualSecondPage, "Expected="+expectedSecondPage + ", Actual="+actualSecondPage);
+        Assertions.assertTrue(secondResponse.headers().firstValue("Link").isEmpty(), "Expected no Link header on the last page");
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages with the header Accept: application/x-ndjson
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one JSON representation of a message per line
+     */
+    @Test
+    public void getAllMessagesAsNdjson() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .header("Accept", "application/x-ndjson")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9996, 9996, "test message 3", 1669947792L));
+        expectedResult.add(new Message(9997, 9997, "test message 2", 1669947792L));
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        List<Message> actualResult = new ArrayList<Message>();
+        for (String line : response.body().split("\n")) {
+            actualResult.add(objectMapper.readValue(line, Message.class));
+        }
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
 }
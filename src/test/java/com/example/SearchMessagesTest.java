@@ -0,0 +1,110 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SearchMessagesTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Searching GET localhost:8080/messages/search?q=test message for the messages inserted at startup
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the three seeded messages, newest first, and the newest two with limit=2
+     */
+    @Test
+    public void searchIndexedAtStartup() throws IOException, InterruptedException {
+        Message first = new Message(9999, 9999, "test message 1", 1669947792L);
+        Message second = new Message(9997, 9997, "test message 2", 1669947792L);
+        Message third = new Message(9996, 9996, "test message 3", 1669947792L);
+        Assertions.assertEquals(List.of(first, second, third), search("q=" + encode("Test, MESSAGE!")));
+        Assertions.assertEquals(List.of(first, second), search("q=" + encode("test message") + "&limit=2"));
+        Assertions.assertEquals(List.of(second), search("q=" + encode("message 2")));
+        Assertions.assertEquals(List.of(), search("q=" + encode("message 4")));
+        Assertions.assertEquals(List.of(), search("q=" + encode("  ?! ")));
+    }
+
+    /**
+     * Creating, updating and deleting messages, searching after each change
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: matches by every word of the current message text, newest timePostedEpoch first
+     */
+    @Test
+    public void searchFollowsChanges() throws IOException, InterruptedException {
+        send("POST", "messages", "{\"postedBy\":9999,\"messageText\": \"coffee in the morning\",\"timePostedEpoch\": 1669947800}");
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"morning run, then coffee\",\"timePostedEpoch\": 1669947700}");
+        Message first = new Message(1, 9999, "coffee in the morning", 1669947800L);
+        Message second = new Message(2, 9998, "morning run, then coffee", 1669947700L);
+        Assertions.assertEquals(List.of(first, second), search("q=" + encode("morning coffee")));
+
+        send("PATCH", "messages/1", "{\"messageText\": \"tea in the morning\"}");
+        Message updated = new Message(1, 9999, "tea in the morning", 1669947800L);
+        Assertions.assertEquals(List.of(second), search("q=coffee"));
+        Assertions.assertEquals(List.of(updated, second), search("q=morning"));
+
+        send("DELETE", "messages/2", null);
+        Assertions.assertEquals(List.of(), search("q=coffee"));
+        Assertions.assertEquals(List.of(updated), search("q=morning"));
+    }
+
+    private List<Message> search(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", "messages/search?" + query, null);
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/" + path))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
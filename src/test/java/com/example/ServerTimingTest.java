@@ -0,0 +1,100 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class ServerTimingTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient for interacting locally on
+     * the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Server-Timing header: controller, service, db (with one statement), serialization and total durations
+     */
+    @Test
+    public void serverTimingForDatabaseRead() throws IOException, InterruptedException {
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages"))
+                .build();
+        HttpResponse<String> response = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        String serverTiming = response.headers().firstValue("Server-Timing").orElse("");
+
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertTrue(serverTiming.matches("controller;dur=[0-9.]+, service;dur=[0-9.]+, " +
+                "db;dur=[0-9.]+;desc=\"1 statements\", serialization;dur=[0-9.]+, total;dur=[0-9.]+"),
+                "Unexpected Server-Timing header: " + serverTiming);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/9999/likes, which is counted with a JdbcTemplate
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Server-Timing header: db with one statement
+     */
+    @Test
+    public void serverTimingForJdbcTemplateRead() throws IOException, InterruptedException {
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999/likes"))
+                .build();
+        HttpResponse<String> response = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        String serverTiming = response.headers().firstValue("Server-Timing").orElse("");
+
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertTrue(serverTiming.matches(".*db;dur=[0-9.]+;desc=\"1 statements\".*"),
+                "Unexpected Server-Timing header: " + serverTiming);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/login, which completes asynchronously
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Server-Timing header: present, with a total duration
+     */
+    @Test
+    public void serverTimingForAsyncLogin() throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"testuser1\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertTrue(response.headers().firstValue("Server-Timing").orElse("").contains("total;dur="),
+                "Expected a Server-Timing header");
+    }
+}
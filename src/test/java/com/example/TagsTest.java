@@ -0,0 +1,162 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.TrendingTag;
+import com.example.entity.Message;
+import com.example.service.TagService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TagsTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Creating messages with hashtags and mentions, then updating and deleting them
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: GET localhost:8080/tags/{tag}/messages returns the messages with the tag, newest first, matching
+     *  hashtags ignoring case and with or without their #, and following updates and deletes
+     */
+    @Test
+    public void messagesByTag() throws IOException, InterruptedException {
+        send("POST", "messages", "{\"postedBy\":9999,\"messageText\": \"Learning #Java with @testuser2\",\"timePostedEpoch\": 1669947800}");
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"#java and #spring, email@example.com\",\"timePostedEpoch\": 1669947900}");
+        Message first = new Message(1, 9999, "Learning #Java with @testuser2", 1669947800L);
+        Message second = new Message(2, 9998, "#java and #spring, email@example.com", 1669947900L);
+
+        Assertions.assertEquals(List.of(second, first), messages("tags/java/messages"));
+        Assertions.assertEquals(List.of(second, first), messages("tags/%23JAVA/messages"));
+        Assertions.assertEquals(List.of(second), messages("tags/spring/messages"));
+        Assertions.assertEquals(List.of(first), messages("tags/@testuser2/messages"));
+        Assertions.assertEquals(List.of(), messages("tags/example/messages"));
+
+        send("PATCH", "messages/1", "{\"messageText\": \"Learning #spring\"}");
+        Message updated = new Message(1, 9999, "Learning #spring", 1669947800L);
+        Assertions.assertEquals(List.of(second), messages("tags/java/messages"));
+        Assertions.assertEquals(List.of(second, updated), messages("tags/spring/messages"));
+        Assertions.assertEquals(List.of(), messages("tags/@testuser2/messages"));
+
+        send("DELETE", "messages/2", null);
+        Assertions.assertEquals(List.of(updated), messages("tags/spring/messages"));
+    }
+
+    /**
+     * Creating messages with hashtags, then updating and deleting some of them
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: GET localhost:8080/tags/trending returns the hashtags by number of messages using them
+     */
+    @Test
+    public void trendingTags() throws IOException, InterruptedException {
+        send("POST", "messages", "{\"postedBy\":9999,\"messageText\": \"#java #spring\",\"timePostedEpoch\": 1669947800}");
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"#java #h2\",\"timePostedEpoch\": 1669947810}");
+        send("POST", "messages", "{\"postedBy\":9997,\"messageText\": \"#Java #spring\",\"timePostedEpoch\": 1669947820}");
+
+        Assertions.assertEquals(List.of(new TrendingTag("java", 3), new TrendingTag("spring", 2), new TrendingTag("h2", 1)),
+                trending("tags/trending"));
+        Assertions.assertEquals(List.of(new TrendingTag("java", 3)), trending("tags/trending?limit=1"));
+
+        send("PATCH", "messages/2", "{\"messageText\": \"#spring only\"}");
+        send("DELETE", "messages/1", null);
+        Assertions.assertEquals(List.of(new TrendingTag("spring", 2), new TrendingTag("java", 1)),
+                trending("tags/trending"));
+    }
+
+    /**
+     * Creating messages with hashtags, removing a hashtag of one as a concurrent update would, and then deleting it
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: GET localhost:8080/tags/trending counts the removed hashtag down once, not again for the delete
+     */
+    @Test
+    public void trendingTagsCountRemovedTagOnce() throws IOException, InterruptedException {
+        send("POST", "messages", "{\"postedBy\":9999,\"messageText\": \"#java #spring\",\"timePostedEpoch\": 1669947800}");
+        send("POST", "messages", "{\"postedBy\":9998,\"messageText\": \"#spring\",\"timePostedEpoch\": 1669947810}");
+        Message first = new Message(1, 9999, "#java #spring", 1669947800L);
+
+        app.getBean(TagService.class).updated(first, new Message(1, 9999, "#java", 1669947800L));
+        send("DELETE", "messages/1", null);
+        Assertions.assertEquals(List.of(new TrendingTag("spring", 1)), trending("tags/trending"));
+    }
+
+    /**
+     * Creating messages with hashtags through POST localhost:8080/messages/batch
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: each message is listed once under its tags, and counted once in the trending tags
+     */
+    @Test
+    public void batchMessagesByTag() throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "messages/batch",
+                "[{\"postedBy\":9999,\"messageText\": \"#java #spring\",\"timePostedEpoch\": 1669947800}," +
+                "{\"postedBy\":9998,\"messageText\": \"#java\",\"timePostedEpoch\": 1669947810}]");
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Message first = new Message(1, 9999, "#java #spring", 1669947800L);
+        Message second = new Message(2, 9998, "#java", 1669947810L);
+
+        Assertions.assertEquals(List.of(second, first), messages("tags/java/messages"));
+        Assertions.assertEquals(List.of(first), messages("tags/spring/messages"));
+        Assertions.assertEquals(List.of(new TrendingTag("java", 2), new TrendingTag("spring", 1)),
+                trending("tags/trending"));
+    }
+
+    private List<Message> messages(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", path, null);
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+    }
+
+    private List<TrendingTag> trending(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", path, null);
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<TrendingTag>>() {});
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/" + path))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 
+import com.example.entity.Message;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class UpdateMessageTest {
@@ -123,4 +124,33 @@ public class UpdateMessageTest {
         int status = response.statusCode();
         Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
     }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/9999, then PATCH localhost:8080/messages/9999, then GET
+     * localhost:8080/messages/9999 again (the first read populates the message cache)
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the message with the updated text
+     */
+    @Test
+    public void updateMessageThenRetrieveReturnsUpdatedText() throws IOException, InterruptedException {
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        String json = "{\"messageText\": \"text changed\"}";
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Message expectedResult = new Message(9999, 9999, "text changed", 1669947792L);
+        Message actualResult = objectMapper.readValue(response.body(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
 }
@@ -11,10 +11,15 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
 import org.springframework.context.ApplicationContext;
 
 import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.service.PasswordHasher;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class UserLoginTest {
@@ -104,4 +109,165 @@ public class UserLoginTest {
         int status = response.statusCode();
         Assertions.assertEquals(401, status, "Expected Status Code 401 - Actual Code was: " + status);
     }
+
+    /**
+     * Sending an http request to POST localhost:8080/login with valid username and password, then POST
+     * localhost:8080/login again presenting only the returned session token
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of user object without its password
+     */
+    @Test
+    public void loginWithSessionToken() throws IOException, InterruptedException {
+        String json = "{\"username\":\"testuser1\",\"password\":\"password\"}";
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response1 = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response1.statusCode());
+        String token = response1.headers().firstValue("X-Session-Token").orElse(null);
+        Assertions.assertNotNull(token, "Expected an X-Session-Token header");
+
+        HttpRequest tokenRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .header("Authorization", "Bearer " + token)
+                .build();
+        HttpResponse<String> response2 = webClient.send(tokenRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response2.statusCode(), "Expected Status Code 200 - Actual Code was: " + response2.statusCode());
+        Account expectedResult = new Account(9999, "testuser1", null);
+        Account actualResult = new ObjectMapper().readValue(response2.body(), Account.class);
+        Assertions.assertEquals(expectedResult, actualResult);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/login presenting an unknown session token
+     *
+     * Expected Response:
+     * 	Status Code: 401
+     */
+    @Test
+    public void loginWithInvalidSessionToken() throws IOException, InterruptedException {
+        HttpRequest tokenRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .header("Authorization", "Bearer not-a-token")
+                .build();
+        HttpResponse<String> response = webClient.send(tokenRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(401, status, "Expected Status Code 401 - Actual Code was: " + status);
+    }
+
+    /**
+     * Logging in, then sending http requests to POST localhost:8080/messages presenting the returned session token:
+     * without postedBy, with the postedBy of another account, and with an unknown token
+     *
+     * Expected Response:
+     *  Status Code: 200 with the message posted by the account of the token, then 403, then 401
+     */
+    @Test
+    public void createMessageWithSessionToken() throws IOException, InterruptedException {
+        HttpRequest loginRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"testuser1\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        String token = webClient.send(loginRequest, HttpResponse.BodyHandlers.ofString())
+                .headers().firstValue("X-Session-Token").orElseThrow();
+
+        HttpResponse<String> posted = postMessage("{\"messageText\": \"posted with a token\"}", token);
+        Assertions.assertEquals(200, posted.statusCode(), "Expected Status Code 200 - Actual Code was: " + posted.statusCode());
+        Assertions.assertEquals(9999, objectMapper.readValue(posted.body(), Message.class).getPostedBy());
+
+        HttpResponse<String> otherAccount = postMessage("{\"postedBy\": 9998, \"messageText\": \"not mine\"}", token);
+        Assertions.assertEquals(403, otherAccount.statusCode(), "Expected Status Code 403 - Actual Code was: " + otherAccount.statusCode());
+
+        HttpResponse<String> unknownToken = postMessage("{\"postedBy\": 9999, \"messageText\": \"hello\"}", "not-a-token");
+        Assertions.assertEquals(401, unknownToken.statusCode(), "Expected Status Code 401 - Actual Code was: " + unknownToken.statusCode());
+    }
+
+    private HttpResponse<String> postMessage(String json, String token) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/register, then POST localhost:8080/login with the same username
+     * and password
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the registered user object
+     */
+    @Test
+    public void loginAfterRegistration() throws IOException, InterruptedException {
+        String json = "{\"username\":\"newuser\",\"password\":\"newpassword\"}";
+        HttpRequest registerRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> registerResponse = webClient.send(registerRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, registerResponse.statusCode());
+        ObjectMapper om = new ObjectMapper();
+        Account registeredAccount = om.readValue(registerResponse.body(), Account.class);
+
+        HttpRequest loginRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> loginResponse = webClient.send(loginRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, loginResponse.statusCode(), "Expected Status Code 200 - Actual Code was: " + loginResponse.statusCode());
+        Account expectedResult = new Account(registeredAccount.getAccountId(), "newuser", "newpassword");
+        Account actualResult = om.readValue(loginResponse.body(), Account.class);
+        Assertions.assertEquals(expectedResult, actualResult);
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/login with an unknown username and with a wrong password for an
+     * existing one
+     *
+     * Expected Response:
+     * 	Status Code: 401 for both, with the unknown username checked against the dummy hash by PasswordHasher.mismatch,
+     * 	so that it runs the KDF like the wrong password does
+     */
+    @Test
+    public void loginInvalidUsernameRunsTheKdf() throws IOException, InterruptedException {
+        String webApplicationType = app instanceof ReactiveWebApplicationContext ? "reactive" : "servlet";
+        SpringApplication.exit(app);
+        SpringApplication application = new SpringApplication(SocialMediaApp.class);
+        application.addInitializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof PasswordHasher ? Mockito.spy(bean) : bean;
+            }
+        }));
+        app = application.run("--spring.main.web-application-type=" + webApplicationType);
+        PasswordHasher passwordHasher = app.getBean(PasswordHasher.class);
+
+        Assertions.assertEquals(401, login("{\"username\":\"nobody\",\"password\":\"password\"}").statusCode());
+        Mockito.verify(passwordHasher).mismatch("password");
+
+        Assertions.assertEquals(401, login("{\"username\":\"testuser1\",\"password\":\"pass404\"}").statusCode());
+        Mockito.verify(passwordHasher).matches(Mockito.eq("pass404"), Mockito.anyString());
+        Mockito.verify(passwordHasher, Mockito.times(1)).mismatch(Mockito.anyString());
+    }
+
+    private HttpResponse<String> login(String json) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
 }
@@ -13,6 +13,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -62,6 +64,30 @@ public class UserRegistrationTest {
     }
 
 
+    /**
+     * Sending an http request to POST localhost:8080/register, then reading the stored account row
+     *
+     * Expected Result:
+     *  The password column holds a BCrypt hash that matches the submitted password, never the password itself
+     */
+    @Test
+    public void registerUserStoresPasswordHash() throws IOException, InterruptedException {
+        String json = "{\"username\":\"user\",\"password\":\"password\"}";
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+
+        String stored = app.getBean(JdbcTemplate.class)
+                .queryForObject("select password from account where username = ?", String.class, "user");
+        Assertions.assertNotEquals("password", stored);
+        Assertions.assertTrue(stored.matches("\\$2[aby]\\$\\d{2}\\$[./A-Za-z0-9]{53}"), "Expected a BCrypt hash - Actual was: " + stored);
+        Assertions.assertTrue(new BCryptPasswordEncoder().matches("password", stored), "Expected the hash to match the password");
+    }
+
      /**
      * Sending an http request to POST localhost:8080/register when username already exists in system
      * 
@@ -83,4 +109,23 @@ public class UserRegistrationTest {
         Assertions.assertEquals(200, status1, "Expected Status Code 200 - Actual Code was: " + status1);
         Assertions.assertEquals(409, status2, "Expected Status Code 409 - Actual Code was: " + status2);
     }
+
+    /**
+     * Sending an http request to POST localhost:8080/register with the username of an account seeded in the database
+     *
+     * Expected Response:
+     *  Status Code: 409
+     */
+    @Test
+    public void registerUserDuplicateSeededUsername() throws IOException, InterruptedException {
+        String json = "{\"username\":\"testuser1\",\"password\":\"password\"}";
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(409, status, "Expected Status Code 409 - Actual Code was: " + status);
+    }
 }